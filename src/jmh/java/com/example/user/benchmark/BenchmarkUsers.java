@@ -0,0 +1,30 @@
+package com.example.user.benchmark;
+
+import com.example.user.domain.User;
+import com.example.user.enumeration.Role;
+
+import java.util.Date;
+
+final class BenchmarkUsers {
+
+    private BenchmarkUsers() {
+    }
+
+    static User user(int index) {
+        User user = new User();
+        user.setId((long) index);
+        user.setUserId(String.valueOf(1_000_000_000L + index));
+        user.setFirstName("First" + index);
+        user.setLastName("Last" + index);
+        user.setUsername("user" + index);
+        user.setEmail("user" + index + "@example.com");
+        user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3vN4sNAu6hhYt2MS4oTjG3y");
+        user.setProfileImageUrl("http://localhost:8081/user/image/profile/user" + index);
+        user.setJoinDate(new Date());
+        user.setLastLoginDate(new Date());
+        user.setRoles(Role.ROLE_ADMIN);
+        user.setActive(true);
+        user.setNotLocked(true);
+        return user;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.user.benchmark;
+
+import com.example.user.domain.UserPrincipal;
+import com.example.user.domain.VerifiedToken;
+import com.example.user.utility.JWTTokenProvider;
+import com.example.user.utility.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JWTTokenProvider jwtTokenProvider;
+    private VerifiedTokenCache verifiedTokenCache;
+    private UserPrincipal userPrincipal;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokenProvider = new JWTTokenProvider("benchmark-secret");
+        verifiedTokenCache = new VerifiedTokenCache(10_000, Duration.ofMinutes(10), new SimpleMeterRegistry());
+        userPrincipal = new UserPrincipal(BenchmarkUsers.user(1));
+        token = jwtTokenProvider.generateJwtToken(userPrincipal);
+        verifiedTokenCache.put(token, jwtTokenProvider.verifyToken(token));
+    }
+
+    @Benchmark
+    public String generateJwtToken() {
+        return jwtTokenProvider.generateJwtToken(userPrincipal);
+    }
+
+    @Benchmark
+    public String getSubject() {
+        return jwtTokenProvider.getSubject(token);
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> getAuthorities() {
+        return jwtTokenProvider.getAuthorities(token);
+    }
+
+    @Benchmark
+    public VerifiedToken verifiedTokenCacheHit() {
+        return verifiedTokenCache.get(token);
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> userPrincipalGetAuthorities() {
+        return userPrincipal.getAuthorities();
+    }
+}
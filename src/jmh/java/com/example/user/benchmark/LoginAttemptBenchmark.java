@@ -0,0 +1,63 @@
+package com.example.user.benchmark;
+
+import com.example.user.service.LoginAttemptService;
+import com.example.user.service.impl.InMemoryLoginAttemptStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class LoginAttemptBenchmark {
+
+    private static final int USERNAMES = 100_000;
+
+    private LoginAttemptService loginAttemptService;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        loginAttemptService = new LoginAttemptService();
+        setField("loginAttemptStore", new InMemoryLoginAttemptStore(Duration.ofMinutes(5), 10, 100_000));
+        setField("maximumNumberOfAttempts", 5);
+        setField("maximumNumberOfAttemptsPerIp", 50);
+        setField("meterRegistry", new SimpleMeterRegistry());
+        loginAttemptService.registerMetrics();
+    }
+
+    private void setField(String name, Object value) throws ReflectiveOperationException {
+        Field field = LoginAttemptService.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(loginAttemptService, value);
+    }
+
+    @Benchmark
+    public void sameUsername() {
+        loginAttemptService.addUserToCache("john");
+    }
+
+    @Benchmark
+    public boolean manyUsernames() {
+        String username = "user" + ThreadLocalRandom.current().nextInt(USERNAMES);
+        loginAttemptService.addUserToCache(username);
+        return loginAttemptService.hasExceededMaxAttempts(username);
+    }
+}
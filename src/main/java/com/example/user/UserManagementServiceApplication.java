@@ -3,12 +3,12 @@ package com.example.user;
 import com.example.user.constant.FileConstant;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.io.File;
 
 @SpringBootApplication
+@EnableScheduling
 public class UserManagementServiceApplication {
 
 
@@ -16,9 +16,4 @@ public class UserManagementServiceApplication {
         SpringApplication.run(UserManagementServiceApplication.class, args);
         new File(FileConstant.USER_FOLDER).mkdirs();
     }
-
-    @Bean
-    BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
 }
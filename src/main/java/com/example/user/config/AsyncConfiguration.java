@@ -0,0 +1,134 @@
+package com.example.user.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class AsyncConfiguration implements WebMvcConfigurer {
+
+    public static final String INLINE_MODE = "inline";
+    public static final String BOUNDED_MODE = "bounded";
+    public static final String VIRTUAL_MODE = "virtual";
+
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    @Value("${web.async.mode:" + INLINE_MODE + "}")
+    private String mode;
+
+    @Value("${web.async.threads:200}")
+    private int threads;
+
+    @Value("${web.async.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${web.async.timeout:30s}")
+    private Duration timeout;
+
+    private ExecutorService virtualThreads;
+    private ThreadPoolTaskExecutor boundedPool;
+
+    @Bean
+    public SmartInitializingSingleton inlineCallableExecution(RequestMappingHandlerAdapter handlerAdapter) {
+        return () -> {
+            if (!INLINE_MODE.equalsIgnoreCase(mode)) {
+                return;
+            }
+            // placed ahead of the built-in Callable handler, which would start async processing
+            List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>();
+            handlers.add(new InlineCallableReturnValueHandler(handlerAdapter.getReturnValueHandlers()));
+            handlers.addAll(handlerAdapter.getReturnValueHandlers());
+            handlerAdapter.setReturnValueHandlers(handlers);
+            LOGGER.info("Serving requests on the container threads");
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(createRequestExecutor());
+        configurer.setDefaultTimeout(timeout.toMillis());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (virtualThreads != null) {
+            virtualThreads.shutdown();
+        }
+        if (boundedPool != null) {
+            boundedPool.shutdown();
+        }
+    }
+
+    private AsyncTaskExecutor createRequestExecutor() {
+        if (VIRTUAL_MODE.equalsIgnoreCase(mode)) {
+            virtualThreads = newVirtualThreadPerTaskExecutor();
+            if (virtualThreads != null) {
+                LOGGER.info("Serving requests on virtual threads");
+                return decorate(new TaskExecutorAdapter(virtualThreads));
+            }
+            LOGGER.warn("Virtual threads are not supported by this JVM, falling back to a bounded pool");
+        } else if (INLINE_MODE.equalsIgnoreCase(mode)) {
+            // callables are normally called by InlineCallableReturnValueHandler and never reach this executor
+            return decorate(new TaskExecutorAdapter(Runnable::run));
+        }
+        boundedPool = new ThreadPoolTaskExecutor();
+        boundedPool.setThreadNamePrefix("request-");
+        boundedPool.setCorePoolSize(threads);
+        boundedPool.setMaxPoolSize(threads);
+        boundedPool.setQueueCapacity(queueCapacity);
+        boundedPool.setDaemon(true);
+        boundedPool.setTaskDecorator(requestContextPropagation());
+        boundedPool.initialize();
+        LOGGER.info("Serving requests on a pool of {} threads", threads);
+        return boundedPool;
+    }
+
+    private AsyncTaskExecutor decorate(TaskExecutorAdapter executor) {
+        executor.setTaskDecorator(requestContextPropagation());
+        return executor;
+    }
+
+    private static TaskDecorator requestContextPropagation() {
+        // services build URLs from the current request, which is bound to the container thread only
+        return task -> {
+            RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+            return () -> {
+                RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+                RequestContextHolder.setRequestAttributes(requestAttributes);
+                try {
+                    task.run();
+                } finally {
+                    RequestContextHolder.setRequestAttributes(previous);
+                }
+            };
+        };
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+}
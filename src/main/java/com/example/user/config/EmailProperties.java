@@ -0,0 +1,33 @@
+package com.example.user.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+import static com.example.user.constant.EmailConstant.*;
+
+@Component
+@ConfigurationProperties(prefix = "mail")
+@Data
+public class EmailProperties {
+
+    private boolean enabled = false;
+    private String protocol = SIMPLE_MAIL_TRANSFER_PROTOCOL;
+    private String host = GMAIL_SMTP_SERVER;
+    private int port = DEFAULT_PORT;
+    private String username = USERNAME;
+    private String password = PASSWORD;
+    private boolean auth = true;
+    private boolean startTls = true;
+    private Duration timeout = Duration.ofSeconds(10);
+    private int queueCapacity = 1000;
+    private int connectionPoolSize = 2;
+    private int batchSize = 20;
+    private int maxAttempts = 5;
+    private Duration initialBackoff = Duration.ofSeconds(2);
+    private Duration maxBackoff = Duration.ofMinutes(5);
+    private int deadLetterCapacity = 1000;
+
+}
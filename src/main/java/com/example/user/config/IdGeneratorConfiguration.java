@@ -0,0 +1,22 @@
+package com.example.user.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static com.example.user.utility.SnowflakeSequenceGenerator.MODE_SETTING;
+import static com.example.user.utility.SnowflakeSequenceGenerator.NODE_SETTING;
+
+@Configuration
+public class IdGeneratorConfiguration {
+
+    @Bean
+    public HibernatePropertiesCustomizer idGeneratorPropertiesCustomizer(@Value("${id.generator.primary-key:pooled}") String mode,
+                                                                        @Value("${id.generator.node:}") String node) {
+        return properties -> {
+            properties.put(MODE_SETTING, mode);
+            properties.put(NODE_SETTING, node);
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.user.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandlerComposite;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+// Calls a returned Callable on the container thread and handles its result as if the handler had returned it,
+// so the inline mode skips startAsync and the second dispatch through the filter chain
+public class InlineCallableReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+    private final HandlerMethodReturnValueHandlerComposite delegate = new HandlerMethodReturnValueHandlerComposite();
+
+    public InlineCallableReturnValueHandler(List<HandlerMethodReturnValueHandler> handlers) {
+        delegate.addHandlers(handlers);
+    }
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        return Callable.class.isAssignableFrom(returnType.getParameterType());
+    }
+
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest) throws Exception {
+        if (returnValue == null) {
+            mavContainer.setRequestHandled(true);
+            return;
+        }
+        Object result = ((Callable<?>) returnValue).call();
+        delegate.handleReturnValue(result, new CallableResultMethodParameter(returnType, result), mavContainer, webRequest);
+    }
+
+    private static class CallableResultMethodParameter extends MethodParameter {
+
+        private final Class<?> resultType;
+        private final ResolvableType resultGenericType;
+
+        CallableResultMethodParameter(MethodParameter callableType, Object result) {
+            super(callableType);
+            this.resultGenericType = ResolvableType.forType(callableType.getGenericParameterType()).getGeneric();
+            this.resultType = result == null ? resultGenericType.toClass() : result.getClass();
+        }
+
+        CallableResultMethodParameter(CallableResultMethodParameter original) {
+            super(original);
+            this.resultType = original.resultType;
+            this.resultGenericType = original.resultGenericType;
+        }
+
+        @Override
+        public Class<?> getParameterType() {
+            return resultType;
+        }
+
+        @Override
+        public Type getGenericParameterType() {
+            return resultGenericType.getType();
+        }
+
+        @Override
+        public CallableResultMethodParameter clone() {
+            return new CallableResultMethodParameter(this);
+        }
+    }
+}
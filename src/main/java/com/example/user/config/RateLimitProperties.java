@@ -0,0 +1,32 @@
+package com.example.user.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+@Data
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    private long maximumBuckets = 1_000_000;
+    private int maximumBodySize = 16 * 1024;
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+        private String path;
+        private String method;
+        private Duration period = Duration.ofMinutes(1);
+        private int ipCapacity;
+        private int accountCapacity;
+        private String accountField;
+        private String accountPathVariable;
+    }
+}
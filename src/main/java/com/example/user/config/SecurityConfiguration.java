@@ -4,6 +4,9 @@ import com.example.user.constant.SecurityConstant;
 import com.example.user.filter.JwtAccessDeniedHandler;
 import com.example.user.filter.JwtAuthenticationEntryPoint;
 import com.example.user.filter.JwtAuthorizationFilter;
+import com.example.user.filter.RateLimitFilter;
+import com.example.user.utility.BoundedPasswordEncoder;
+import com.example.user.utility.RehashingAuthenticationProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
@@ -16,8 +19,8 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
@@ -28,6 +31,9 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     @Autowired
     private JwtAuthorizationFilter jwtAuthorizationFilter;
 
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
     @Autowired
     private JwtAccessDeniedHandler jwtAccessDeniedHandler;
 
@@ -40,11 +46,16 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     private UserDetailsService userDetailsService;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    @Lazy
+    private UserDetailsPasswordService userDetailsPasswordService;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
 
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder);
+        auth.authenticationProvider(new RehashingAuthenticationProvider(userDetailsService, passwordEncoder,
+                userDetailsPasswordService));
     }
 
     @Override
@@ -52,12 +63,14 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
         http.csrf().disable().cors().and()
                 .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 .and().authorizeHttpRequests().antMatchers(SecurityConstant.PUBLIC_URLS).permitAll()
+                .antMatchers(SecurityConstant.METRICS_URLS).hasAuthority(SecurityConstant.METRICS_AUTHORITY)
                 .anyRequest().authenticated()
                 .and()
                 .exceptionHandling().accessDeniedHandler(jwtAccessDeniedHandler)
                 .authenticationEntryPoint(jwtAuthenticationEntryPoint)
                 .and()
-                .addFilterBefore(jwtAuthorizationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthorizationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(rateLimitFilter, JwtAuthorizationFilter.class);
     }
 
     @Bean
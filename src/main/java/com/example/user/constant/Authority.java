@@ -6,6 +6,6 @@ public class Authority {
     public static final String[] HR_AUTHORITIES = {"user:read", "user:update"};
     public static final String[] MANAGER_AUTHORITIES = {"user:read", "user:update"};
     public static final String[] ADMIN_AUTHORITIES = {"user:read", "user:create", "user:update"};
-    public static final String[] SUPER_ADMIN_AUTHORITIES = {"user:read", "user:create", "user:update", "user:delete"};
+    public static final String[] SUPER_ADMIN_AUTHORITIES = {"user:read", "user:create", "user:update", "user:delete", "metrics:read"};
 
 }
@@ -8,10 +8,14 @@ public class EmailConstant {
     public static final String CC_EMAIL = "mohamednibras111@gmail.com";
     public static final String EMAIL_SUBJECT = "Get Arrays, LLC - New Password";
     public static final String GMAIL_SMTP_SERVER = "smtp.gmail.com";
-    public static final String SMTP_HOST = "mail.smtp.host";
-    public static final String SMTP_AUTH = "mail.smtp.auth";
-    public static final String SMTP_PORT = "mail.smtp.port";
+    // session properties are namespaced by protocol, e.g. mail.smtps.host, formatted with the configured protocol
+    public static final String SMTP_HOST = "mail.%s.host";
+    public static final String SMTP_AUTH = "mail.%s.auth";
+    public static final String SMTP_PORT = "mail.%s.port";
     public static final int DEFAULT_PORT = 465;
-    public static final String SMTP_STARTTLS_ENABLE = "mail.smtp.starttls.enable";
-    public static final String SMTP_STARTTLS_REQUIRED = "mail.smtp.starttls.required";
+    public static final String SMTP_STARTTLS_ENABLE = "mail.%s.starttls.enable";
+    public static final String SMTP_STARTTLS_REQUIRED = "mail.%s.starttls.required";
+    public static final String SMTP_CONNECTION_TIMEOUT = "mail.%s.connectiontimeout";
+    public static final String SMTP_TIMEOUT = "mail.%s.timeout";
+    public static final String SMTP_WRITE_TIMEOUT = "mail.%s.writetimeout";
 }
@@ -3,6 +3,8 @@ package com.example.user.constant;
 public class FileConstant {
     public static final String USER_IMAGE_PATH = "/user/image/";
     public static final String JPG_EXTENSION = "jpg";
+    public static final String PNG_EXTENSION = "png";
+    public static final String GIF_EXTENSION = "gif";
     public static final String USER_FOLDER = System.getProperty("user.home") + "/supportportal/user/";
     public static final String DIRECTORY_CREATED = "Created directory for: {}";
     public static final String DEFAULT_USER_IMAGE_PATH = "/user/image/profile/";
@@ -11,4 +13,7 @@ public class FileConstant {
     public static final String FORWARD_SLASH = "/";
     public static final String NOT_AN_IMAGE_FILE = " is not an image file. Please upload an image file";
     public static final String TEMP_PROFILE_IMAGE_BASE_URL = "https://robohash.org/";
+    public static final String AVATAR_FOLDER = USER_FOLDER + ".avatars/";
+    public static final String STAGING_FOLDER = ".staging";
+    public static final String THUMBNAIL_SUFFIX = "-thumbnail";
 }
@@ -0,0 +1,17 @@
+package com.example.user.constant;
+
+public class MetricConstant {
+
+    public static final String USER_SERVICE_TIMER = "user.service";
+    public static final String JWT_AUTHORIZATION_TIMER = "jwt.authorization";
+    public static final String LOGIN_ATTEMPTS_FAILED = "login.attempts.failed";
+    public static final String LOGIN_ATTEMPTS_BLOCKED = "login.attempts.blocked";
+    public static final String LOGIN_ATTEMPTS_TRACKED = "login.attempts.tracked";
+    public static final String EMAIL_DELIVERY_TIMER = "email.delivery";
+    public static final String EMAIL_QUEUE = "email.queue";
+    public static final String EMAIL_DEAD_LETTERS = "email.dead.letters";
+    public static final String IMAGE_WRITE_TIMER = "image.write";
+    public static final String OUTCOME_TAG = "outcome";
+    public static final String TYPE_TAG = "type";
+
+}
@@ -12,7 +12,13 @@ public class SecurityConstant {
     public static final String FORBIDDEN_MESSAGE = "You need to log in to access this page";
     public static final String ACCESS_DENIED_MESSAGE = "You need to have permission to access this page";
     public static final String OPTIONS_HTTP_METHOD = "OPTIONS";
-    public static final String[] PUBLIC_URLS = {"/user/login", "/user/register", "/user/resetpassword/**", "/user/image/**"};
+    public static final String TOO_MANY_REQUESTS_MESSAGE = "Too many requests. Please try again later";
+    public static final String PAYLOAD_TOO_LARGE_MESSAGE = "The request body is too large";
+    public static final String[] PUBLIC_URLS = {"/user/login", "/user/register", "/user/resetpassword/**", "/user/image/**",
+            "/actuator/health"};
+    // scraped with a token carrying the metrics authority, the metrics are not for anonymous callers
+    public static final String[] METRICS_URLS = {"/actuator/prometheus", "/actuator/metrics/**"};
+    public static final String METRICS_AUTHORITY = "metrics:read";
     //public static final String[] PUBLIC_URLS = { "**" };
 
 }
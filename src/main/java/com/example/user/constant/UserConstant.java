@@ -0,0 +1,18 @@
+package com.example.user.constant;
+
+public class UserConstant {
+
+    public static final String USERNAME_ALREADY_EXISTS = "Username already taken";
+    public static final String EMAIL_ALREADY_EXISTS = "Email already taken";
+    public static final String NO_USER_FOUND_BY_USERNAME = "No user found by username: ";
+    public static final String UNKNOWN_ROLE = "Unknown role: ";
+    public static final String INVALID_SORT_DIRECTION = "Sort must be asc or desc: ";
+    public static final String VERSION_REQUIRED = "The version of the user being updated is required";
+    public static final String USERNAME_UNIQUE_CONSTRAINT = "uk_user_username";
+    public static final String EMAIL_UNIQUE_CONSTRAINT = "uk_user_email";
+    public static final String USER_ID_UNIQUE_CONSTRAINT = "uk_user_user_id";
+    public static final int MAXIMUM_USER_ID_ATTEMPTS = 3;
+    public static final String ROLE_INDEX = "idx_user_roles";
+    public static final String AUTHORITIES_COLUMN = "authorities";
+
+}
@@ -1,33 +1,54 @@
 package com.example.user.controller;
 
-import com.example.user.constant.FileConstant;
 import com.example.user.constant.SecurityConstant;
 import com.example.user.domain.HttpResponse;
 import com.example.user.domain.User;
+import com.example.user.domain.UserImportResult;
+import com.example.user.domain.UserPage;
+import com.example.user.domain.UserPatch;
 import com.example.user.domain.UserPrincipal;
+import com.example.user.domain.UserSummary;
 import com.example.user.exception.*;
+import com.example.user.service.AvatarCache;
+import com.example.user.service.ImageStorage;
+import com.example.user.service.LoginActivityRecorder;
+import com.example.user.service.LoginAttemptService;
+import com.example.user.service.UserImportService;
 import com.example.user.service.UserService;
+import com.example.user.utility.FileResponseWriter;
 import com.example.user.utility.JWTTokenProvider;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.io.ByteArrayOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.List;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.Callable;
 
-import static com.example.user.constant.FileConstant.TEMP_PROFILE_IMAGE_BASE_URL;
+import static com.example.user.constant.UserConstant.INVALID_SORT_DIRECTION;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
 
 @RestController
 @RequestMapping(path = {"/", "/user"})
@@ -36,113 +57,227 @@ public class UserController extends ExceptionManager {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserImportService userImportService;
+
     @Autowired
     private JWTTokenProvider jwtTokenProvider;
 
     @Autowired
     private AuthenticationManager authenticationManager;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private FileResponseWriter fileResponseWriter;
+
+    @Autowired
+    private AvatarCache avatarCache;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private LoginAttemptService loginAttemptService;
+
+    @Autowired
+    private LoginActivityRecorder loginActivityRecorder;
+
     public static final String EMAIL_SENT = "An email with a new password was sent to: ";
     public static final String USER_DELETED_SUCCESSFULLY = "User deleted successfully";
+    public static final String TEXT_CSV_VALUE = "text/csv";
+    public static final String TOO_MANY_LOGIN_ATTEMPTS = "Too many failed login attempts from this address. Please try again later";
+    public static final String LOGIN_ATTEMPTS_THROTTLED = "Too many login attempts. Please try again later";
 
     @PostMapping("/register")
-    public ResponseEntity<User> register(@RequestBody User user) throws UserNotFoundException, UsernameExistException, EmailExistException {
-        User newUser = userService.register(user.getFirstName(), user.getLastName(), user.getUsername(), user.getEmail());
-        return new ResponseEntity<>(newUser, HttpStatus.OK);
+    public Callable<ResponseEntity<User>> register(@RequestBody User user) {
+        return () -> {
+            User newUser = userService.register(user.getFirstName(), user.getLastName(), user.getUsername(), user.getEmail());
+            return new ResponseEntity<>(newUser, HttpStatus.OK);
+        };
     }
 
     @PostMapping("/login")
-    public ResponseEntity<User> login(@RequestBody User user) {
-        authenticate(user.getUsername(), user.getPassword());
-        User loginUser = userService.findUserByUsername(user.getUsername());
-        UserPrincipal userPrincipal = new UserPrincipal(loginUser);
-        HttpHeaders jwtHeader = getJwtHeader(userPrincipal);
-        return new ResponseEntity<>(loginUser, jwtHeader, HttpStatus.OK);
+    public Callable<ResponseEntity<User>> login(@RequestBody User user, HttpServletRequest request) {
+        WebAuthenticationDetails details = new WebAuthenticationDetails(request);
+        return () -> {
+            UserPrincipal userPrincipal = authenticate(user.getUsername(), user.getPassword(), details);
+            // answered with this login's date while the row is written behind, a second lookup could miss it
+            User loginUser = loginActivityRecorder.recordLogin(userPrincipal.getUser(), new Date());
+            HttpHeaders jwtHeader = getJwtHeader(userPrincipal);
+            return new ResponseEntity<>(loginUser, jwtHeader, HttpStatus.OK);
+        };
     }
 
     @PostMapping("/add")
-    public ResponseEntity<User> add(@RequestParam("firstName") String firstName, @RequestParam("lastName") String lastName,
-                                    @RequestParam("username") String username, @RequestParam("email") String email,
-                                    @RequestParam("role") String role, @RequestParam("isActive") String isActive,
-                                    @RequestParam("isNonLocked") String isNonLocked,
-                                    @RequestParam(value = "profileImage", required = false) MultipartFile profileImage)
-            throws UserNotFoundException, UsernameExistException, EmailExistException, IOException {
-        User newUser = userService.addNewUser(firstName, lastName, username, email, role, Boolean.parseBoolean(isNonLocked),
-                Boolean.parseBoolean(isActive), profileImage);
-        return new ResponseEntity<>(newUser, HttpStatus.OK);
+    public Callable<ResponseEntity<User>> add(@RequestParam("firstName") String firstName, @RequestParam("lastName") String lastName,
+                                              @RequestParam("username") String username, @RequestParam("email") String email,
+                                              @RequestParam("role") String role, @RequestParam("isActive") String isActive,
+                                              @RequestParam("isNonLocked") String isNonLocked,
+                                              @RequestParam(value = "profileImage", required = false) MultipartFile profileImage) {
+        return () -> {
+            User newUser = userService.addNewUser(firstName, lastName, username, email, role, Boolean.parseBoolean(isNonLocked),
+                    Boolean.parseBoolean(isActive), profileImage);
+            return new ResponseEntity<>(newUser, HttpStatus.OK);
+        };
+    }
+
+    @PostMapping(path = "/import", consumes = {TEXT_CSV_VALUE, APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("hasAnyAuthority('user:create')")
+    public Callable<ResponseEntity<UserImportResult>> importUsers(HttpServletRequest request) {
+        return () -> {
+            MediaType contentType = MediaType.parseMediaType(request.getContentType());
+            Charset charset = contentType.getCharset() == null ? StandardCharsets.UTF_8 : contentType.getCharset();
+            Reader reader = new InputStreamReader(request.getInputStream(), charset);
+            UserImportResult result = contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                    ? userImportService.importJsonLines(reader)
+                    : userImportService.importCsv(reader);
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        };
     }
 
     @PostMapping("/update")
-    public ResponseEntity<User> update(@RequestParam("currentUsername") String currentUsername, @RequestParam("firstName") String firstName,
-                                       @RequestParam("lastName") String lastName, @RequestParam("username") String username,
-                                       @RequestParam("email") String email, @RequestParam("role") String role,
-                                       @RequestParam("isActive") String isActive, @RequestParam("isNonLocked") String isNonLocked,
-                                       @RequestParam(value = "profileImage", required = false) MultipartFile profileImage)
-            throws UserNotFoundException, UsernameExistException, EmailExistException, IOException {
-        User updatedUser = userService.updateUser(currentUsername, firstName, lastName, username, email, role,
-                Boolean.parseBoolean(isNonLocked), Boolean.parseBoolean(isActive), profileImage);
-        return new ResponseEntity<>(updatedUser, HttpStatus.OK);
+    public Callable<ResponseEntity<User>> update(@RequestParam("currentUsername") String currentUsername, @RequestParam("firstName") String firstName,
+                                                 @RequestParam("lastName") String lastName, @RequestParam("username") String username,
+                                                 @RequestParam("email") String email, @RequestParam("role") String role,
+                                                 @RequestParam("isActive") String isActive, @RequestParam("isNonLocked") String isNonLocked,
+                                                 @RequestParam(value = "profileImage", required = false) MultipartFile profileImage) {
+        return () -> {
+            User updatedUser = userService.updateUser(currentUsername, firstName, lastName, username, email, role,
+                    Boolean.parseBoolean(isNonLocked), Boolean.parseBoolean(isActive), profileImage);
+            return new ResponseEntity<>(updatedUser, HttpStatus.OK);
+        };
+    }
+
+    @PatchMapping("/update/{username}")
+    @PreAuthorize("hasAnyAuthority('user:update')")
+    public Callable<ResponseEntity<User>> patch(@PathVariable("username") String username, @RequestBody UserPatch patch) {
+        return () -> {
+            User updatedUser = userService.patchUser(username, patch);
+            return new ResponseEntity<>(updatedUser, HttpStatus.OK);
+        };
     }
 
     @GetMapping("/find/{username}")
-    public ResponseEntity<User> getUser(@PathVariable("username") String username) {
-        User user = userService.findUserByUsername(username);
-        return new ResponseEntity<>(user, HttpStatus.OK);
+    public Callable<ResponseEntity<UserSummary>> getUser(@PathVariable("username") String username) {
+        return () -> {
+            UserSummary user = userService.findUserSummaryByUsername(username);
+            return new ResponseEntity<>(user, HttpStatus.OK);
+        };
     }
 
     @GetMapping("/list")
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.getUsers();
-        return new ResponseEntity<>(users, HttpStatus.OK);
+    public Callable<ResponseEntity<Void>> getAllUsers() {
+        // the whole table is no longer listed in one response, callers are sent to the first keyset page
+        URI firstPage = ServletUriComponentsBuilder.fromCurrentRequestUri().path("/page").build().toUri();
+        return () -> ResponseEntity.status(HttpStatus.PERMANENT_REDIRECT).location(firstPage).build();
+    }
+
+    @GetMapping("/list/page")
+    public Callable<ResponseEntity<UserPage>> getUsersPage(@RequestParam(value = "cursor", required = false) Long cursor,
+                                                           @RequestParam(value = "size", required = false) Integer size,
+                                                           @RequestParam(value = "sort", defaultValue = "asc") String sort) {
+        return () -> {
+            Sort.Direction direction = Sort.Direction.fromOptionalString(sort)
+                    .orElseThrow(() -> new InvalidRequestException(INVALID_SORT_DIRECTION + sort));
+            UserPage userPage = userService.getUsers(cursor, size, direction);
+            return new ResponseEntity<>(userPage, HttpStatus.OK);
+        };
+    }
+
+    @GetMapping("/list/role/{role}")
+    public Callable<ResponseEntity<UserPage>> getUsersByRole(@PathVariable("role") String role,
+                                                             @RequestParam(value = "cursor", required = false) Long cursor,
+                                                             @RequestParam(value = "size", required = false) Integer size) {
+        return () -> {
+            UserPage userPage = userService.getUsersByRole(role, cursor, size);
+            return new ResponseEntity<>(userPage, HttpStatus.OK);
+        };
+    }
+
+    @GetMapping(path = "/list/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void streamUsers(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            userService.streamUsers(user -> {
+                try {
+                    generator.writeObject(user);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            generator.writeEndArray();
+        }
     }
 
     @GetMapping("/resetPassword/{email}")
-    public ResponseEntity<HttpResponse> resetPassword(@PathVariable("email") String email) throws EmailNotFoundException {
-        userService.resetPassword(email);
-        return response(HttpStatus.OK, EMAIL_SENT + email);
+    public Callable<ResponseEntity<HttpResponse>> resetPassword(@PathVariable("email") String email) {
+        return () -> {
+            userService.resetPassword(email);
+            return response(HttpStatus.OK, EMAIL_SENT + email);
+        };
     }
 
     @DeleteMapping("/delete/{id}")
     @PreAuthorize("hasAnyAuthority('user:delete')")
-    public ResponseEntity<HttpResponse> deleteUser(@PathVariable("id") long id) {
-        userService.deleteUser(id);
-        return response(HttpStatus.NO_CONTENT, USER_DELETED_SUCCESSFULLY);
+    public Callable<ResponseEntity<HttpResponse>> deleteUser(@PathVariable("id") long id) {
+        return () -> {
+            userService.deleteUser(id);
+            return response(HttpStatus.NO_CONTENT, USER_DELETED_SUCCESSFULLY);
+        };
     }
 
     @PostMapping("/updateProfileImage")
-    public ResponseEntity<User> updateProfileImage(@RequestParam("currentUsername") String currentUsername,
-                                                   @RequestParam("profileImage") MultipartFile profileImage)
-            throws UserNotFoundException, UsernameExistException, EmailExistException, IOException {
-        User updatedUser = userService.updateProfileImage(currentUsername, profileImage);
-        return new ResponseEntity<>(updatedUser, HttpStatus.OK);
+    public Callable<ResponseEntity<User>> updateProfileImage(@RequestParam("currentUsername") String currentUsername,
+                                                             @RequestParam("profileImage") MultipartFile profileImage) {
+        return () -> {
+            User updatedUser = userService.updateProfileImage(currentUsername, profileImage);
+            return new ResponseEntity<>(updatedUser, HttpStatus.OK);
+        };
     }
 
-    @GetMapping(path = "/image/{username}/{fileName}", produces = MediaType.IMAGE_JPEG_VALUE)
-    public byte[] getProfileImage(@PathVariable("username") String username, @PathVariable("fileName") String fileName)
-            throws IOException {
-        return Files.readAllBytes(Paths.get(FileConstant.USER_FOLDER + username + FileConstant.FORWARD_SLASH + fileName));
+    @GetMapping(path = "/image/{username}/{fileName}",
+            produces = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_GIF_VALUE})
+    public void getProfileImage(@PathVariable("username") String username, @PathVariable("fileName") String fileName,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path profileImage = imageStorage.resolve(username, fileName);
+        if (profileImage == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        // the stored name carries the type detected on upload
+        MediaType mediaType = MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        fileResponseWriter.write(profileImage, mediaType, request, response);
     }
 
     @GetMapping(path = "/image/profile/{username}", produces = MediaType.IMAGE_JPEG_VALUE)
-    public byte[] getTempProfileImage(@PathVariable("username") String username) throws IOException {
-        URL url = new URL(TEMP_PROFILE_IMAGE_BASE_URL + username);
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        try (InputStream inputStream = url.openStream()) {
-            int bytesRead;
-            byte[] chunk = new byte[1024];
-            while ((bytesRead = inputStream.read(chunk)) > 0) {
-                byteArrayOutputStream.write(chunk, 0, bytesRead);
+    public Callable<ResponseEntity<byte[]>> getTempProfileImage(@PathVariable("username") String username) {
+        // a slow avatar upstream holds an executor thread instead of a container thread
+        return () -> {
+            // only existing users get an avatar, arbitrary names would each cost an upstream fetch and a file
+            if (userService.findUserByUsername(username) == null) {
+                return ResponseEntity.notFound().build();
             }
-        }
-        return byteArrayOutputStream.toByteArray();
+            return ResponseEntity.ok(avatarCache.get(username));
+        };
     }
 
     private ResponseEntity<HttpResponse> response(HttpStatus httpStatus, String message) {
         return new ResponseEntity<>(new HttpResponse(httpStatus, message), httpStatus);
     }
 
-    private void authenticate(String username, String password) {
-        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+    private UserPrincipal authenticate(String username, String password, WebAuthenticationDetails details) throws TooManyLoginAttemptsException {
+        if (loginAttemptService.hasIpExceededMaxAttempts(details.getRemoteAddress())) {
+            throw new TooManyLoginAttemptsException(TOO_MANY_LOGIN_ATTEMPTS);
+        }
+        if (loginAttemptService.isUsernameThrottled(username)) {
+            throw new TooManyLoginAttemptsException(LOGIN_ATTEMPTS_THROTTLED);
+        }
+        UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(username, password);
+        authenticationToken.setDetails(details);
+        return (UserPrincipal) authenticationManager.authenticate(authenticationToken).getPrincipal();
     }
 
     private HttpHeaders getJwtHeader(UserPrincipal user) {
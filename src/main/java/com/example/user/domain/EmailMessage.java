@@ -0,0 +1,52 @@
+package com.example.user.domain;
+
+import java.util.Date;
+
+public class EmailMessage {
+
+    private final String firstName;
+    private volatile String password;
+    private final String email;
+    private final Date createdAt = new Date();
+    private volatile int attempts;
+    private volatile String lastError;
+
+    public EmailMessage(String firstName, String password, String email) {
+        this.firstName = firstName;
+        this.password = password;
+        this.email = email;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void redactPassword() {
+        password = null;
+    }
+
+    public int recordFailure(String error) {
+        lastError = error;
+        return ++attempts;
+    }
+}
@@ -1,15 +1,27 @@
 package com.example.user.domain;
 
+import com.example.user.enumeration.Role;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.Date;
 
+import static com.example.user.constant.UserConstant.*;
+
 @Entity
+@DynamicUpdate
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = USERNAME_UNIQUE_CONSTRAINT, columnNames = "username"),
+        @UniqueConstraint(name = EMAIL_UNIQUE_CONSTRAINT, columnNames = "email"),
+        @UniqueConstraint(name = USER_ID_UNIQUE_CONSTRAINT, columnNames = "userId")},
+        indexes = @Index(name = ROLE_INDEX, columnList = "roles, id"))
 @AllArgsConstructor
 @NoArgsConstructor
 @ToString
@@ -17,7 +29,11 @@ import java.util.Date;
 public class User implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_sequence")
+    @GenericGenerator(name = "user_sequence", strategy = "com.example.user.utility.SnowflakeSequenceGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "hibernate_sequence"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")})
     @Column(nullable = false, updatable = false)
     private Long id;
     private String userId;
@@ -30,10 +46,22 @@ public class User implements Serializable {
     private Date lastLoginDate;
     private Date lastLoginDateDisplay;
     private Date joinDate;
-    private String roles;
-    private String[] authorities;
+    @Enumerated(EnumType.STRING)
+    private Role roles;
     private boolean isActive;
     private boolean isNotLocked;
     private String rawPassword; //couldn't send password as email becasue of AVG virus guard
+    @Version
+    private long version;
+
+    public String[] getAuthorities() {
+        return roles == null ? new String[0] : roles.getAuthorities();
+    }
+
+    // cached users are shared between requests, a request that changes a user for its own answer works on a copy
+    public User copy() {
+        return new User(id, userId, firstName, lastName, username, password, email, profileImageUrl, lastLoginDate,
+                lastLoginDateDisplay, joinDate, roles, isActive, isNotLocked, rawPassword, version);
+    }
 
 }
@@ -0,0 +1,18 @@
+package com.example.user.domain;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import lombok.Data;
+
+@Data
+public class UserImportRow {
+
+    private String firstName;
+    private String lastName;
+    private String username;
+    private String email;
+    private String role;
+    @JsonAlias("isActive")
+    private boolean active = true;
+    @JsonAlias("isNonLocked")
+    private boolean nonLocked = true;
+}
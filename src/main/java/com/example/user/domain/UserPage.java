@@ -0,0 +1,17 @@
+package com.example.user.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class UserPage {
+
+    private List<UserSummary> users;
+    private Long nextCursor;
+
+}
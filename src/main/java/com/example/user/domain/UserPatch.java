@@ -0,0 +1,16 @@
+package com.example.user.domain;
+
+import lombok.Data;
+
+@Data
+public class UserPatch {
+
+    private Long version;
+    private String firstName;
+    private String lastName;
+    private String username;
+    private String email;
+    private String role;
+    private Boolean active;
+    private Boolean notLocked;
+}
@@ -1,13 +1,10 @@
 package com.example.user.domain;
 
+import com.example.user.utility.AuthorityRegistry;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
-import java.util.stream.Collectors;
-
-import static java.util.Arrays.stream;
 
 public class UserPrincipal implements UserDetails {
 
@@ -17,9 +14,13 @@ public class UserPrincipal implements UserDetails {
         this.user = user;
     }
 
+    public User getUser() {
+        return user;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return stream(user.getAuthorities()).map(SimpleGrantedAuthority::new).collect(Collectors.toList());
+        return AuthorityRegistry.forRole(user.getRoles());
     }
 
     @Override
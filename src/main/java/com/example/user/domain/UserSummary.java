@@ -0,0 +1,31 @@
+package com.example.user.domain;
+
+import com.example.user.enumeration.Role;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Date;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class UserSummary implements Serializable {
+
+    private Long id;
+    private String userId;
+    private String firstName;
+    private String lastName;
+    private String username;
+    private String email;
+    private String profileImageUrl;
+    private Date lastLoginDate;
+    private Date lastLoginDateDisplay;
+    private Date joinDate;
+    private Role roles;
+    private boolean isActive;
+    private boolean isNotLocked;
+    private long version;
+
+}
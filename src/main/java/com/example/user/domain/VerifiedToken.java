@@ -0,0 +1,34 @@
+package com.example.user.domain;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+
+public class VerifiedToken {
+
+    private final String subject;
+    private final long expiresAt;
+    private final List<GrantedAuthority> authorities;
+
+    public VerifiedToken(String subject, long expiresAt, List<GrantedAuthority> authorities) {
+        this.subject = subject;
+        this.expiresAt = expiresAt;
+        this.authorities = authorities;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    public boolean isExpired() {
+        return expiresAt <= System.currentTimeMillis();
+    }
+}
@@ -4,6 +4,8 @@ import com.auth0.jwt.exceptions.TokenExpiredException;
 import com.example.user.domain.HttpResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,11 +16,13 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 
 import javax.persistence.NoResultException;
 import java.io.IOException;
 import java.nio.file.AccessDeniedException;
 import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestControllerAdvice
 public class ExceptionManager {
@@ -32,6 +36,8 @@ public class ExceptionManager {
     private static final String ACCOUNT_DISABLED = "Your account has been disabled. If this is an error, please contact administrator";
     private static final String ERROR_PROCESSING_FILE = "Error occurred while processing the file";
     private static final String NOT_ENOUGH_PERMISSION = "You do not have enough permission";
+    private static final String SERVICE_UNAVAILABLE = "The server is too busy to handle the request. Please try again later";
+    private static final String CONCURRENT_MODIFICATION = "This user was modified by someone else. Please reload and try again";
 
     @ExceptionHandler(DisabledException.class)
     public ResponseEntity<HttpResponse> accountDisabledException() {
@@ -73,6 +79,39 @@ public class ExceptionManager {
         return createHttpResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
     }
 
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<HttpResponse> invalidRequestException(InvalidRequestException ex) {
+        return createHttpResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+
+    @ExceptionHandler(NotAnImageFileException.class)
+    public ResponseEntity<HttpResponse> notAnImageFileException(NotAnImageFileException ex) {
+        return createHttpResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    public ResponseEntity<HttpResponse> passwordHashingUnavailableException(PasswordHashingUnavailableException ex) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        return new ResponseEntity<>(new HttpResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage()), headers,
+                HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(TooManyLoginAttemptsException.class)
+    public ResponseEntity<HttpResponse> tooManyLoginAttemptsException(TooManyLoginAttemptsException ex) {
+        return createHttpResponse(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage());
+    }
+
+    @ExceptionHandler({RejectedExecutionException.class, AsyncRequestTimeoutException.class})
+    public ResponseEntity<HttpResponse> serviceUnavailableException() {
+        return createHttpResponse(HttpStatus.SERVICE_UNAVAILABLE, SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<HttpResponse> optimisticLockingFailureException() {
+        return createHttpResponse(HttpStatus.CONFLICT, CONCURRENT_MODIFICATION);
+    }
+
     @ExceptionHandler(UsernameNotFoundException.class)
     public ResponseEntity<HttpResponse> usernameNotFountException(UsernameNotFoundException ex) {
         return createHttpResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
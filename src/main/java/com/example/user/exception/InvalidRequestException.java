@@ -0,0 +1,8 @@
+package com.example.user.exception;
+
+public class InvalidRequestException extends Exception {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
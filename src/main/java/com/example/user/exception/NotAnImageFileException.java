@@ -0,0 +1,8 @@
+package com.example.user.exception;
+
+public class NotAnImageFileException extends Exception {
+
+    public NotAnImageFileException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.user.exception;
+
+public class TooManyLoginAttemptsException extends Exception {
+
+    public TooManyLoginAttemptsException(String message) {
+        super(message);
+    }
+}
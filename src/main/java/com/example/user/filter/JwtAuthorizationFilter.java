@@ -1,31 +1,59 @@
 package com.example.user.filter;
 
+import com.example.user.domain.VerifiedToken;
 import com.example.user.utility.JWTTokenProvider;
+import com.example.user.utility.VerifiedTokenCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.List;
 
+import static com.example.user.constant.MetricConstant.JWT_AUTHORIZATION_TIMER;
+import static com.example.user.constant.MetricConstant.OUTCOME_TAG;
 import static com.example.user.constant.SecurityConstant.OPTIONS_HTTP_METHOD;
 import static com.example.user.constant.SecurityConstant.TOKEN_PREFIX;
 
 @Component
 public class JwtAuthorizationFilter extends OncePerRequestFilter {
+    private static final String CACHED = "cached";
+    private static final String VERIFIED = "verified";
+    private static final String EXPIRED = "expired";
+    private static final String INVALID = "invalid";
 
     @Autowired
     private JWTTokenProvider jwtTokenProvider;
 
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer cachedTimer;
+    private Timer verifiedTimer;
+    private Timer expiredTimer;
+    private Timer invalidTimer;
+
+    @PostConstruct
+    public void registerMetrics() {
+        cachedTimer = outcomeTimer(CACHED);
+        verifiedTimer = outcomeTimer(VERIFIED);
+        expiredTimer = outcomeTimer(EXPIRED);
+        invalidTimer = outcomeTimer(INVALID);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -39,10 +67,27 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
                 return;
             }
             String token = authorizationHeader.substring(TOKEN_PREFIX.length());
-            String username = jwtTokenProvider.getSubject(token);
-            if (jwtTokenProvider.isTokenValid(username, token) && SecurityContextHolder.getContext().getAuthentication() == null) {
-                List<GrantedAuthority> authorities = jwtTokenProvider.getAuthorities(token);
-                Authentication authentication = jwtTokenProvider.getAuthentication(username, authorities, request);
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Timer outcome = invalidTimer;
+            VerifiedToken verifiedToken;
+            try {
+                verifiedToken = verifiedTokenCache.get(token);
+                outcome = cachedTimer;
+                if (verifiedToken == null) {
+                    outcome = invalidTimer;
+                    verifiedToken = jwtTokenProvider.verifyToken(token);
+                    verifiedTokenCache.put(token, verifiedToken);
+                    outcome = verifiedTimer;
+                }
+                if (verifiedToken.isExpired()) {
+                    outcome = expiredTimer;
+                }
+            } finally {
+                sample.stop(outcome);
+            }
+            if (!verifiedToken.isExpired() && SecurityContextHolder.getContext().getAuthentication() == null) {
+                Authentication authentication = jwtTokenProvider.getAuthentication(verifiedToken.getSubject(),
+                        verifiedToken.getAuthorities(), request);
                 SecurityContextHolder.getContext().setAuthentication(authentication);
 
             } else {
@@ -51,4 +96,9 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    private Timer outcomeTimer(String outcome) {
+        return Timer.builder(JWT_AUTHORIZATION_TIMER).tag(OUTCOME_TAG, outcome)
+                .publishPercentileHistogram().register(meterRegistry);
+    }
 }
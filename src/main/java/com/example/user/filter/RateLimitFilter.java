@@ -0,0 +1,129 @@
+package com.example.user.filter;
+
+import com.example.user.config.RateLimitProperties;
+import com.example.user.domain.HttpResponse;
+import com.example.user.utility.TokenBucketRateLimiter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.user.constant.SecurityConstant.PAYLOAD_TOO_LARGE_MESSAGE;
+import static com.example.user.constant.SecurityConstant.TOO_MANY_REQUESTS_MESSAGE;
+
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Autowired
+    private RateLimitProperties rateLimitProperties;
+
+    @Autowired
+    private TokenBucketRateLimiter rateLimiter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public RateLimitFilter() {
+        pathMatcher.setCaseSensitive(false);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RateLimitProperties.Rule rule = findRule(request);
+        if (rule == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String path = request.getServletPath();
+        long wait = 0;
+        if (rule.getIpCapacity() > 0) {
+            wait = rateLimiter.tryAcquire(rule.getPath() + "|ip|" + request.getRemoteAddr(), rule.getIpCapacity(), rule.getPeriod());
+        }
+        if (wait == 0 && rule.getAccountCapacity() > 0) {
+            String account = null;
+            if (rule.getAccountPathVariable() != null) {
+                account = pathMatcher.extractUriTemplateVariables(rule.getPath(), path).get(rule.getAccountPathVariable());
+            } else if (rule.getAccountField() != null) {
+                // chunked bodies are read up to the limit as well, anything longer is refused rather than left unlimited
+                int maximumBodySize = rateLimitProperties.getMaximumBodySize();
+                if (request.getContentLengthLong() > maximumBodySize) {
+                    rejectTooLarge(response);
+                    return;
+                }
+                // the body is buffered so the account can be read here and still be bound by the controller
+                CachedBodyHttpServletRequest cachedRequest = new CachedBodyHttpServletRequest(request, maximumBodySize);
+                if (cachedRequest.getBody().length > maximumBodySize) {
+                    rejectTooLarge(response);
+                    return;
+                }
+                account = readAccount(cachedRequest.getBody(), rule.getAccountField());
+                request = cachedRequest;
+            }
+            if (StringUtils.isNotBlank(account)) {
+                wait = rateLimiter.tryAcquire(rule.getPath() + "|account|" + account.toLowerCase(),
+                        rule.getAccountCapacity(), rule.getPeriod());
+            }
+        }
+        if (wait > 0) {
+            reject(response, wait);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private RateLimitProperties.Rule findRule(HttpServletRequest request) {
+        if (!rateLimitProperties.isEnabled()) {
+            return null;
+        }
+        for (RateLimitProperties.Rule rule : rateLimitProperties.getRules()) {
+            if ((rule.getMethod() == null || rule.getMethod().equalsIgnoreCase(request.getMethod()))
+                    && pathMatcher.match(rule.getPath(), request.getServletPath())) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private String readAccount(byte[] body, String field) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode value = objectMapper.readTree(body).get(field);
+            return value == null || !value.isTextual() ? null : value.asText();
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        HttpResponse httpResponse = new HttpResponse(HttpStatus.TOO_MANY_REQUESTS, TOO_MANY_REQUESTS_MESSAGE);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1)));
+        objectMapper.writeValue(response.getOutputStream(), httpResponse);
+    }
+
+    private void rejectTooLarge(HttpServletResponse response) throws IOException {
+        HttpResponse httpResponse = new HttpResponse(HttpStatus.PAYLOAD_TOO_LARGE, PAYLOAD_TOO_LARGE_MESSAGE);
+        response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), httpResponse);
+    }
+}
@@ -4,6 +4,7 @@ import com.example.user.service.LoginAttemptService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -19,5 +20,9 @@ public class AuthenticationFailureListener {
             String username = (String) principal;
             loginAttemptService.addUserToCache(username);
         }
+        Object details = event.getAuthentication().getDetails();
+        if (details instanceof WebAuthenticationDetails) {
+            loginAttemptService.addIpToCache(((WebAuthenticationDetails) details).getRemoteAddress());
+        }
     }
 }
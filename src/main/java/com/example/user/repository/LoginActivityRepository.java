@@ -0,0 +1,28 @@
+package com.example.user.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Map;
+
+@Repository
+public class LoginActivityRepository {
+
+    // leaves the version alone on purpose: no update writes the login dates and the user is updated column by column,
+    // so a login cannot be lost to a stale write, and bumping it would fail every PATCH read before the user's last login
+    private static final String UPDATE_LAST_LOGIN_DATE =
+            "UPDATE user SET last_login_date_display = last_login_date, last_login_date = ? WHERE username = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void updateLastLoginDates(Map<String, Date> lastLoginDates, int batchSize) {
+        jdbcTemplate.batchUpdate(UPDATE_LAST_LOGIN_DATE, lastLoginDates.entrySet(), batchSize, (statement, entry) -> {
+            statement.setTimestamp(1, new Timestamp(entry.getValue().getTime()));
+            statement.setString(2, entry.getKey());
+        });
+    }
+}
@@ -1,8 +1,23 @@
 package com.example.user.repository;
 
 import com.example.user.domain.User;
+import com.example.user.domain.UserSummary;
+import com.example.user.enumeration.Role;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -11,4 +26,47 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     User findUserByEmail(String email);
 
+    @Query("select u.username, u.email from User u where u.username in :usernames or u.email in :emails")
+    List<Object[]> findExistingUsernamesAndEmails(@Param("usernames") Collection<String> usernames,
+                                                  @Param("emails") Collection<String> emails);
+
+    @Query("select u.id, u.username, u.email from User u where u.username = :username or u.email = :email")
+    List<Object[]> findUsernameAndEmailOwners(@Param("username") String username, @Param("email") String email);
+
+    String SELECT_USER_SUMMARY = "select new com.example.user.domain.UserSummary(u.id, u.userId, u.firstName, "
+            + "u.lastName, u.username, u.email, u.profileImageUrl, u.lastLoginDate, u.lastLoginDateDisplay, u.joinDate, "
+            + "u.roles, u.isActive, u.isNotLocked, u.version) from User u ";
+
+    @Query(SELECT_USER_SUMMARY + "where u.username = :username")
+    UserSummary findSummaryByUsername(@Param("username") String username);
+
+    @Query(SELECT_USER_SUMMARY + "where u.id > :cursor order by u.id asc")
+    List<UserSummary> findSummariesAfter(@Param("cursor") Long cursor, Pageable pageable);
+
+    @Query(SELECT_USER_SUMMARY + "where u.id < :cursor order by u.id desc")
+    List<UserSummary> findSummariesBefore(@Param("cursor") Long cursor, Pageable pageable);
+
+    // served by the (roles, id) index without a sort
+    @Query(SELECT_USER_SUMMARY + "where u.roles = :role and u.id > :cursor order by u.id asc")
+    List<UserSummary> findSummariesByRoleAfter(@Param("role") Role role, @Param("cursor") Long cursor, Pageable pageable);
+
+    // With MySQL the fetch size only streams rows when the connection uses useCursorFetch=true
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_USER_SUMMARY + "order by u.id")
+    Stream<UserSummary> streamAllSummaries();
+
+    // the bulk updates bypass the entity, so they bump the version themselves for the optimistic lock to see them
+    @Modifying
+    @Query("update User u set u.isNotLocked = false, u.version = u.version + 1 where u.id = :id")
+    void lockUser(@Param("id") Long id);
+
+    @Modifying
+    @Query("update User u set u.password = :password, u.version = u.version + 1 where u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.profileImageUrl = :profileImageUrl, u.version = u.version + 1 where u.id = :id")
+    void updateProfileImageUrl(@Param("id") Long id, @Param("profileImageUrl") String profileImageUrl);
+
 }
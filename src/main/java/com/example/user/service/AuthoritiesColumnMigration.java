@@ -0,0 +1,41 @@
+package com.example.user.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSetMetaData;
+
+import static com.example.user.constant.UserConstant.AUTHORITIES_COLUMN;
+
+@Component
+@ConditionalOnProperty(name = "user.schema.drop-authorities-column", havingValue = "true")
+public class AuthoritiesColumnMigration implements ApplicationRunner {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // authorities are derived from the role now, the stored copy is dead weight in every row
+        if (Boolean.TRUE.equals(jdbcTemplate.query("select * from user where 1 = 0", resultSet -> {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (AUTHORITIES_COLUMN.equalsIgnoreCase(metaData.getColumnName(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }))) {
+            jdbcTemplate.execute("alter table user drop column " + AUTHORITIES_COLUMN);
+            LOGGER.info("Dropped the {} column from the user table", AUTHORITIES_COLUMN);
+        }
+    }
+}
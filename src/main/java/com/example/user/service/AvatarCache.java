@@ -0,0 +1,159 @@
+package com.example.user.service;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.user.constant.FileConstant.AVATAR_FOLDER;
+import static com.example.user.constant.FileConstant.DIRECTORY_CREATED;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+@Service
+public class AvatarCache {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    private final AvatarFetcher avatarFetcher;
+    private final Path avatarFolder;
+    private final Duration timeToLive;
+    private final long maximumDiskSize;
+    // bytes of avatar files on disk, recounted by every cleanup so replaced or foreign files cannot skew it for long
+    private final AtomicLong diskUsage = new AtomicLong();
+    // concurrent misses for the same username wait on a single load instead of each fetching the avatar
+    private final LoadingCache<String, byte[]> avatars;
+
+    public AvatarCache(AvatarFetcher avatarFetcher,
+                       @Value("${avatar.cache.folder:}") String avatarFolder,
+                       @Value("${avatar.cache.maximum-memory-size:16MB}") DataSize maximumMemorySize,
+                       @Value("${avatar.cache.time-to-live:1d}") Duration timeToLive,
+                       @Value("${avatar.cache.maximum-disk-size:256MB}") DataSize maximumDiskSize,
+                       MeterRegistry meterRegistry) {
+        this.avatarFetcher = avatarFetcher;
+        this.avatarFolder = Paths.get(StringUtils.isBlank(avatarFolder) ? AVATAR_FOLDER : avatarFolder).toAbsolutePath().normalize();
+        this.timeToLive = timeToLive;
+        this.maximumDiskSize = maximumDiskSize.toBytes();
+        this.avatars = CacheBuilder.newBuilder()
+                .maximumWeight(maximumMemorySize.toBytes())
+                .<String, byte[]>weigher((username, avatar) -> avatar.length)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public byte[] load(String username) throws IOException {
+                        return loadAvatar(username);
+                    }
+                });
+        GuavaCacheMetrics.monitor(meterRegistry, avatars, "avatars");
+        deleteExpiredAvatars();
+    }
+
+    public byte[] get(String username) throws IOException {
+        try {
+            return avatars.get(username);
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    // Deletes avatar files older than the time to live, which would otherwise only be replaced when requested again,
+    // and recounts the bytes the remaining ones take
+    @Scheduled(fixedDelayString = "${avatar.cache.cleanup-interval:3600000}")
+    public void deleteExpiredAvatars() {
+        if (!Files.isDirectory(avatarFolder)) {
+            return;
+        }
+        FileTime cutoff = FileTime.fromMillis(System.currentTimeMillis() - timeToLive.toMillis());
+        int deleted = 0;
+        long remaining = 0;
+        try (DirectoryStream<Path> avatarFiles = Files.newDirectoryStream(avatarFolder)) {
+            for (Path avatarFile : avatarFiles) {
+                try {
+                    if (!Files.isRegularFile(avatarFile)) {
+                        continue;
+                    }
+                    if (Files.getLastModifiedTime(avatarFile).compareTo(cutoff) < 0) {
+                        if (Files.deleteIfExists(avatarFile)) {
+                            deleted++;
+                        }
+                    } else {
+                        remaining += Files.size(avatarFile);
+                    }
+                } catch (NoSuchFileException ex) {
+                    // replaced or deleted meanwhile
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.warn("Could not delete expired avatars in {}: {}", avatarFolder, ex.getMessage());
+            return;
+        }
+        diskUsage.set(remaining);
+        if (deleted > 0) {
+            LOGGER.info("Deleted {} expired avatars", deleted);
+        }
+    }
+
+    private byte[] loadAvatar(String username) throws IOException {
+        Path avatarFile = avatarFolder.resolve(Hashing.sha256().hashString(username, StandardCharsets.UTF_8).toString());
+        if (Files.exists(avatarFile)
+                && Files.getLastModifiedTime(avatarFile).toMillis() + timeToLive.toMillis() > System.currentTimeMillis()) {
+            return Files.readAllBytes(avatarFile);
+        }
+        byte[] avatar = avatarFetcher.fetch(username);
+        storeAvatar(avatarFile, avatar);
+        return avatar;
+    }
+
+    private void storeAvatar(Path avatarFile, byte[] avatar) {
+        // a full folder only costs a fetch once the avatar is evicted from memory, it never grows past the limit
+        if (diskUsage.addAndGet(avatar.length) > maximumDiskSize) {
+            diskUsage.addAndGet(-avatar.length);
+            LOGGER.debug("Avatar folder {} is full, not storing {}", avatarFolder, avatarFile);
+            return;
+        }
+        try {
+            if (!Files.exists(avatarFolder)) {
+                Files.createDirectories(avatarFolder);
+                LOGGER.info(DIRECTORY_CREATED, avatarFolder);
+            }
+            Path temporaryFile = Files.createTempFile(avatarFolder, avatarFile.getFileName().toString(), ".tmp");
+            Files.write(temporaryFile, avatar);
+            try {
+                Files.move(temporaryFile, avatarFile, ATOMIC_MOVE, REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporaryFile, avatarFile, REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            diskUsage.addAndGet(-avatar.length);
+            // the avatar is still served from memory, it will be fetched again once evicted
+            LOGGER.warn("Could not store avatar {} on disk: {}", avatarFile, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.user.service;
+
+import java.io.IOException;
+
+public interface AvatarFetcher {
+
+    byte[] fetch(String username) throws IOException;
+
+}
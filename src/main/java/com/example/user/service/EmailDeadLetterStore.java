@@ -0,0 +1,39 @@
+package com.example.user.service;
+
+import com.example.user.config.EmailProperties;
+import com.example.user.domain.EmailMessage;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class EmailDeadLetterStore {
+
+    private final Deque<EmailMessage> messages = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int capacity;
+
+    public EmailDeadLetterStore(EmailProperties emailProperties) {
+        this.capacity = emailProperties.getDeadLetterCapacity();
+    }
+
+    public void add(EmailMessage emailMessage) {
+        messages.addLast(emailMessage);
+        // the oldest dead letters are dropped once the store is full
+        if (size.incrementAndGet() > capacity && messages.pollFirst() != null) {
+            size.decrementAndGet();
+        }
+    }
+
+    public List<EmailMessage> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    public int size() {
+        return size.get();
+    }
+}
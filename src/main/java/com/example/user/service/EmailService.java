@@ -1,49 +1,314 @@
 package com.example.user.service;
 
-import com.sun.mail.smtp.SMTPTransport;
+import com.example.user.config.EmailProperties;
+import com.example.user.domain.EmailMessage;
+import com.example.user.utility.SmtpConnectionPool;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.Session;
+import javax.mail.Transport;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.example.user.constant.EmailConstant.*;
+import static com.example.user.constant.MetricConstant.*;
 
 @Service
 public class EmailService {
 
-    public void sendNewPasswordEmail(String firstName, String newUserPassword, String email) throws MessagingException {
-        Message message = createEmail(firstName, newUserPassword, email);
-        SMTPTransport smtpTransport = (SMTPTransport) getEmailSession().getTransport(SIMPLE_MAIL_TRANSFER_PROTOCOL);
-        smtpTransport.connect(GMAIL_SMTP_SERVER, USERNAME, PASSWORD);
-        smtpTransport.sendMessage(message, message.getAllRecipients());
-        smtpTransport.close();
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    private final EmailProperties emailProperties;
+    private final EmailDeadLetterStore deadLetterStore;
+    private final Session session;
+    private final BlockingQueue<EmailMessage> queue;
+    // emails waiting in the retry scheduler, dead-lettered at shutdown rather than dropped with the scheduler
+    private final Set<EmailMessage> pendingRetries = ConcurrentHashMap.newKeySet();
+    private final SmtpConnectionPool connectionPool;
+    private final Timer deliveredTimer;
+    private final Timer failedTimer;
+    private final Counter deadLetterCounter;
+    private ExecutorService deliveryExecutor;
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean running;
+
+    public EmailService(EmailProperties emailProperties, EmailDeadLetterStore deadLetterStore, MeterRegistry meterRegistry) {
+        this.emailProperties = emailProperties;
+        this.deadLetterStore = deadLetterStore;
+        this.session = createEmailSession();
+        this.queue = new ArrayBlockingQueue<>(emailProperties.getQueueCapacity());
+        this.connectionPool = new SmtpConnectionPool(session, emailProperties);
+        this.deliveredTimer = Timer.builder(EMAIL_DELIVERY_TIMER).tag(OUTCOME_TAG, "success")
+                .publishPercentileHistogram().register(meterRegistry);
+        this.failedTimer = Timer.builder(EMAIL_DELIVERY_TIMER).tag(OUTCOME_TAG, "failure")
+                .publishPercentileHistogram().register(meterRegistry);
+        this.deadLetterCounter = Counter.builder(EMAIL_DEAD_LETTERS).register(meterRegistry);
+        Gauge.builder(EMAIL_QUEUE, queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!emailProperties.isEnabled()) {
+            LOGGER.info("Email delivery is disabled");
+            return;
+        }
+        running = true;
+        int workers = emailProperties.getConnectionPoolSize();
+        deliveryExecutor = Executors.newFixedThreadPool(workers, namedThreads("email-delivery"));
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(namedThreads("email-retry"));
+        for (int i = 0; i < workers; i++) {
+            deliveryExecutor.execute(this::deliver);
+        }
+    }
+
+    public void sendNewPasswordEmail(String firstName, String newUserPassword, String email) {
+        if (!running) {
+            LOGGER.info("Email delivery is disabled, not sending new password email to: {}", email);
+            return;
+        }
+        EmailMessage emailMessage = new EmailMessage(firstName, newUserPassword, email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // the password must not be mailed if the surrounding transaction rolls back
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(emailMessage);
+                }
+            });
+        } else {
+            enqueue(emailMessage);
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        retryScheduler.shutdownNow();
+        for (EmailMessage emailMessage : pendingRetries) {
+            if (pendingRetries.remove(emailMessage)) {
+                deadLetter(emailMessage);
+            }
+        }
+        deliveryExecutor.shutdown();
+        deliveryExecutor.awaitTermination(emailProperties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        connectionPool.close();
+        if (!queue.isEmpty()) {
+            LOGGER.warn("{} emails were still queued at shutdown", queue.size());
+        }
+    }
+
+    private void enqueue(EmailMessage emailMessage) {
+        if (!queue.offer(emailMessage)) {
+            LOGGER.error("Email queue is full, moving email to {} to the dead letter store", emailMessage.getEmail());
+            emailMessage.recordFailure("Email queue is full");
+            deadLetter(emailMessage);
+        }
+    }
+
+    private void deliver() {
+        List<EmailMessage> batch = new ArrayList<>(emailProperties.getBatchSize());
+        while (running) {
+            try {
+                EmailMessage first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, emailProperties.getBatchSize() - 1);
+                sendBatch(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                // sendBatch accounts for every message itself, this only keeps the worker draining the queue
+                LOGGER.error("Unexpected failure delivering a batch of {} emails", batch.size(), ex);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // every message ends up sent, retried, postponed or dead-lettered, and the transport always goes back to the pool
+    private void sendBatch(List<EmailMessage> batch) {
+        Transport transport = null;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                EmailMessage emailMessage = batch.get(i);
+                long start = System.nanoTime();
+                Message message;
+                try {
+                    message = createEmail(emailMessage);
+                } catch (MessagingException | RuntimeException ex) {
+                    // a message that cannot be built never will be, retrying it only delays the dead letter
+                    failedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    LOGGER.error("Could not create email to {}, moving it to the dead letter store: {}", emailMessage.getEmail(), ex.toString());
+                    emailMessage.recordFailure(ex.toString());
+                    deadLetter(emailMessage);
+                    continue;
+                }
+                try {
+                    if (transport == null) {
+                        transport = connectionPool.borrow();
+                    }
+                    transport.sendMessage(message, message.getAllRecipients());
+                    deliveredTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                } catch (MessagingException ex) {
+                    failedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    scheduleRetry(emailMessage, ex.getMessage());
+                    if (transport == null || !transport.isConnected()) {
+                        if (transport != null) {
+                            connectionPool.invalidate(transport);
+                            transport = null;
+                        }
+                        // the server is unreachable, the rest of the batch waits instead of failing one connection at a time
+                        postpone(batch.subList(i + 1, batch.size()), ex);
+                        return;
+                    }
+                } catch (RuntimeException ex) {
+                    failedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    scheduleRetry(emailMessage, ex.toString());
+                    // the transport is in an unknown state, the next message borrows another one
+                    if (transport != null) {
+                        connectionPool.invalidate(transport);
+                        transport = null;
+                    }
+                }
+            }
+        } finally {
+            if (transport != null) {
+                connectionPool.release(transport);
+            }
+        }
+    }
+
+    private void postpone(List<EmailMessage> emailMessages, MessagingException ex) {
+        if (emailMessages.isEmpty()) {
+            return;
+        }
+        if (!running) {
+            for (EmailMessage emailMessage : emailMessages) {
+                emailMessage.recordFailure(ex.getMessage());
+                deadLetter(emailMessage);
+            }
+            return;
+        }
+        // copied, the batch is reused by the delivery loop; not attempted, so no attempt is counted
+        List<EmailMessage> postponed = new ArrayList<>(emailMessages);
+        LOGGER.warn("Mail server unavailable, postponing {} emails: {}", postponed.size(), ex.getMessage());
+        scheduleEnqueue(postponed, emailProperties.getInitialBackoff().toMillis());
+    }
+
+    private void scheduleRetry(EmailMessage emailMessage, String error) {
+        int attempts = emailMessage.recordFailure(error);
+        if (attempts >= emailProperties.getMaxAttempts() || !running) {
+            LOGGER.error("Giving up on email to {} after {} attempts: {}", emailMessage.getEmail(), attempts, error);
+            deadLetter(emailMessage);
+            return;
+        }
+        long backoff = Math.min(emailProperties.getInitialBackoff().toMillis() << (attempts - 1),
+                emailProperties.getMaxBackoff().toMillis());
+        LOGGER.warn("Could not send email to {}, retrying in {} ms: {}", emailMessage.getEmail(), backoff, error);
+        scheduleEnqueue(Collections.singletonList(emailMessage), backoff);
     }
 
-    private Message createEmail(String firstName, String newUserPassword, String email) throws MessagingException {
-        Message message = new MimeMessage(getEmailSession());
+    private void scheduleEnqueue(List<EmailMessage> emailMessages, long delay) {
+        pendingRetries.addAll(emailMessages);
+        try {
+            retryScheduler.schedule(() -> {
+                for (EmailMessage emailMessage : emailMessages) {
+                    // removed by whichever runs first, this retry or the shutdown that dead-letters it
+                    if (pendingRetries.remove(emailMessage)) {
+                        enqueue(emailMessage);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            // shutting down meanwhile
+            for (EmailMessage emailMessage : emailMessages) {
+                if (pendingRetries.remove(emailMessage)) {
+                    deadLetter(emailMessage);
+                }
+            }
+        }
+    }
+
+    private void deadLetter(EmailMessage emailMessage) {
+        // the plaintext password is never kept, the user has to reset it
+        emailMessage.redactPassword();
+        deadLetterCounter.increment();
+        deadLetterStore.add(emailMessage);
+    }
+
+    private Message createEmail(EmailMessage emailMessage) throws MessagingException {
+        Message message = new MimeMessage(session);
         message.setFrom(new InternetAddress(FROM_EMAIL));
-        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(email, false));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(emailMessage.getEmail(), false));
         message.setRecipients(Message.RecipientType.CC, InternetAddress.parse(CC_EMAIL, false));
         message.setSubject(EMAIL_SUBJECT);
-        message.setText("Hello " + firstName + ", \n \n" + "Your new account password is " + newUserPassword + "\n \n The Support Team");
+        message.setText("Hello " + emailMessage.getFirstName() + ", \n \n" + "Your new account password is "
+                + emailMessage.getPassword() + "\n \n The Support Team");
         message.setSentDate(new Date());
         message.saveChanges();
         return message;
     }
 
-    private Session getEmailSession() {
-        Properties properties = System.getProperties();
-        properties.put(SMTP_HOST, GMAIL_SMTP_SERVER);
-        properties.put(SMTP_AUTH, true);
-        properties.put(SMTP_PORT, DEFAULT_PORT);
-        properties.put(SMTP_STARTTLS_ENABLE, true);
-        properties.put(SMTP_STARTTLS_REQUIRED, true);
+    private Session createEmailSession() {
+        String protocol = emailProperties.getProtocol();
+        String timeout = String.valueOf(emailProperties.getTimeout().toMillis());
+        Properties properties = new Properties();
+        properties.put(String.format(SMTP_HOST, protocol), emailProperties.getHost());
+        properties.put(String.format(SMTP_AUTH, protocol), emailProperties.isAuth());
+        properties.put(String.format(SMTP_PORT, protocol), emailProperties.getPort());
+        properties.put(String.format(SMTP_STARTTLS_ENABLE, protocol), emailProperties.isStartTls());
+        properties.put(String.format(SMTP_STARTTLS_REQUIRED, protocol), emailProperties.isStartTls());
+        properties.put(String.format(SMTP_CONNECTION_TIMEOUT, protocol), timeout);
+        properties.put(String.format(SMTP_TIMEOUT, protocol), timeout);
+        properties.put(String.format(SMTP_WRITE_TIMEOUT, protocol), timeout);
 
         return Session.getInstance(properties, null);
     }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 }
@@ -0,0 +1,6 @@
+package com.example.user.service;
+
+public interface IdGenerator {
+
+    long nextId();
+}
@@ -0,0 +1,13 @@
+package com.example.user.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface ImageStorage {
+
+    Path getRootFolder();
+
+    Path resolve(String username, String fileName);
+
+    void store(Path source, String username, String fileName) throws IOException;
+}
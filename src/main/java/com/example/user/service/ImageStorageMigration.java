@@ -0,0 +1,99 @@
+package com.example.user.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Component
+@ConditionalOnProperty(name = "image.storage.migrate", havingValue = "true")
+public class ImageStorageMigration implements ApplicationRunner {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Value("${image.storage.migration-threads:4}")
+    private int migrationThreads;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException, InterruptedException, ExecutionException {
+        Path rootFolder = imageStorage.getRootFolder();
+        if (!Files.isDirectory(rootFolder)) {
+            return;
+        }
+        List<Path> userFolders;
+        try (Stream<Path> folders = Files.list(rootFolder)) {
+            userFolders = folders.filter(this::isFlatUserFolder).collect(Collectors.toList());
+        }
+        LOGGER.info("Migrating {} user image folders in {}", userFolders.size(), rootFolder);
+        AtomicInteger migratedFiles = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(migrationThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(userFolders.size());
+            for (Path userFolder : userFolders) {
+                futures.add(executor.submit(() -> migratedFiles.addAndGet(migrate(userFolder))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        LOGGER.info("Migrated {} image files", migratedFiles.get());
+    }
+
+    private boolean isFlatUserFolder(Path folder) {
+        // avatars, staging and blobs live in dot folders; shard folders only contain folders
+        if (!Files.isDirectory(folder) || folder.getFileName().toString().startsWith(".")) {
+            return false;
+        }
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.anyMatch(Files::isRegularFile);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private int migrate(Path userFolder) throws IOException {
+        String username = userFolder.getFileName().toString();
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(userFolder)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        int migrated = 0;
+        for (Path file : files) {
+            Path target = imageStorage.resolve(username, file.getFileName().toString());
+            if (file.equals(target)) {
+                continue;
+            }
+            imageStorage.store(file, username, file.getFileName().toString());
+            migrated++;
+        }
+        try (Stream<Path> remaining = Files.list(userFolder)) {
+            if (!remaining.findAny().isPresent()) {
+                Files.delete(userFolder);
+            }
+        }
+        return migrated;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.user.service;
+
+import com.example.user.domain.User;
+import com.example.user.repository.LoginActivityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+public class LoginActivityRecorder {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    private final Map<String, Date> pendingLoginDates = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "login-activity-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    private LoginActivityRepository loginActivityRepository;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Value("${login-activity.batch-size:500}")
+    private int batchSize;
+
+    // returns a copy of the user carrying this login's dates, the user itself may be shared through the user cache
+    public User recordLogin(User user, Date loginDate) {
+        Date previousLoginDate = pendingLoginDates.put(user.getUsername(), loginDate);
+        User loginUser = user.copy();
+        loginUser.setLastLoginDateDisplay(previousLoginDate == null ? user.getLastLoginDate() : previousLoginDate);
+        loginUser.setLastLoginDate(loginDate);
+        if (pendingLoginDates.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+        return loginUser;
+    }
+
+    @Scheduled(fixedDelayString = "${login-activity.flush-interval:5000}")
+    public synchronized void flush() {
+        if (pendingLoginDates.isEmpty()) {
+            return;
+        }
+        Map<String, Date> batch = new HashMap<>();
+        for (Map.Entry<String, Date> entry : pendingLoginDates.entrySet()) {
+            // a newer login recorded meanwhile stays pending for the next flush
+            if (pendingLoginDates.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+        try {
+            loginActivityRepository.updateLastLoginDates(batch, batchSize);
+            // the cached users still hold the dates from before, a later login would show them as its previous one
+            userCache.evictByUsername(batch.keySet());
+            LOGGER.debug("Flushed last login date for {} users", batch.size());
+        } catch (RuntimeException ex) {
+            LOGGER.error("Could not flush last login date for {} users: {}", batch.size(), ex.getMessage());
+            batch.forEach(pendingLoginDates::putIfAbsent);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+}
@@ -1,52 +1,87 @@
 package com.example.user.service;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+
+import static com.example.user.constant.MetricConstant.*;
 
 @Service
 public class LoginAttemptService {
-    private static final int MAXIMUM_NUMBER_OF_ATTEMPTS = 5;
-    private static final int ATTEMPT_INCREMENT = 1;
-    private final LoadingCache<String, Integer> loginAttemptCache;
-
-    public LoginAttemptService() {
-        super();
-        loginAttemptCache = CacheBuilder.newBuilder()
-                .expireAfterWrite(5, TimeUnit.MINUTES)
-                .maximumSize(100).build(new CacheLoader<>() {
-                    @Override
-                    public Integer load(String s) {
-                        return 0;
-                    }
-                });
+    private static final String USERNAME_KEY_PREFIX = "username:";
+    private static final String IP_KEY_PREFIX = "ip:";
+    private static final String USERNAME = "username";
+    private static final String IP = "ip";
+
+    @Autowired
+    private LoginAttemptStore loginAttemptStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${login-attempt.max-attempts:5}")
+    private int maximumNumberOfAttempts;
+
+    @Value("${login-attempt.max-attempts-per-ip:50}")
+    private int maximumNumberOfAttemptsPerIp;
+
+    private Counter failedUsernameAttempts;
+    private Counter failedIpAttempts;
+    private Counter blockedUsernameAttempts;
+    private Counter blockedIpAttempts;
+
+    @PostConstruct
+    public void registerMetrics() {
+        failedUsernameAttempts = Counter.builder(LOGIN_ATTEMPTS_FAILED).tag(TYPE_TAG, USERNAME).register(meterRegistry);
+        failedIpAttempts = Counter.builder(LOGIN_ATTEMPTS_FAILED).tag(TYPE_TAG, IP).register(meterRegistry);
+        blockedUsernameAttempts = Counter.builder(LOGIN_ATTEMPTS_BLOCKED).tag(TYPE_TAG, USERNAME).register(meterRegistry);
+        blockedIpAttempts = Counter.builder(LOGIN_ATTEMPTS_BLOCKED).tag(TYPE_TAG, IP).register(meterRegistry);
+        Gauge.builder(LOGIN_ATTEMPTS_TRACKED, loginAttemptStore, LoginAttemptStore::size).register(meterRegistry);
     }
 
     public void evictUserFromCache(String username) {
-        loginAttemptCache.invalidate(username);
+        loginAttemptStore.reset(USERNAME_KEY_PREFIX + username);
     }
 
     public void addUserToCache(String username) {
-        int attempts = 0;
-        try {
-            attempts = loginAttemptCache.get(username) + ATTEMPT_INCREMENT;
-        } catch (ExecutionException e) {
-            e.printStackTrace();
-        }
-        loginAttemptCache.put(username, attempts);
+        failedUsernameAttempts.increment();
+        loginAttemptStore.increment(USERNAME_KEY_PREFIX + username);
+    }
+
+    public void addIpToCache(String ipAddress) {
+        failedIpAttempts.increment();
+        loginAttemptStore.increment(IP_KEY_PREFIX + ipAddress);
     }
 
     public boolean hasExceededMaxAttempts(String username) {
-        try {
-            return loginAttemptCache.get(username) >= MAXIMUM_NUMBER_OF_ATTEMPTS;
-        } catch (ExecutionException e) {
-            e.printStackTrace();
+        long attempts = loginAttemptStore.count(USERNAME_KEY_PREFIX + username);
+        // an untracked username made no attempts the account could be locked for
+        if (attempts != LoginAttemptStore.UNTRACKED && attempts >= maximumNumberOfAttempts) {
+            blockedUsernameAttempts.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isUsernameThrottled(String username) {
+        if (loginAttemptStore.count(USERNAME_KEY_PREFIX + username) == LoginAttemptStore.UNTRACKED) {
+            blockedUsernameAttempts.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean hasIpExceededMaxAttempts(String ipAddress) {
+        if (ipAddress != null && loginAttemptStore.count(IP_KEY_PREFIX + ipAddress) >= maximumNumberOfAttemptsPerIp) {
+            blockedIpAttempts.increment();
+            return true;
         }
-        return true;
+        return false;
     }
 
 }
@@ -0,0 +1,15 @@
+package com.example.user.service;
+
+public interface LoginAttemptStore {
+
+    // returned for a key the store is too full to track, it has no attempts of its own and is throttled instead
+    long UNTRACKED = Long.MAX_VALUE;
+
+    long increment(String key);
+
+    long count(String key);
+
+    void reset(String key);
+
+    int size();
+}
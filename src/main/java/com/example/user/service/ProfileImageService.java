@@ -0,0 +1,224 @@
+package com.example.user.service;
+
+import com.example.user.exception.NotAnImageFileException;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.user.constant.FileConstant.*;
+
+@Service
+public class ProfileImageService {
+
+    private static final byte[] JPEG_SIGNATURE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] GIF_SIGNATURE = {'G', 'I', 'F', '8'};
+    private static final int SIGNATURE_LENGTH = 8;
+    private static final String[] IMAGE_EXTENSIONS = {JPG_EXTENSION, PNG_EXTENSION, GIF_EXTENSION};
+
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    private final ImageStorage imageStorage;
+    // on the same file system as the stored images, so publishing is a rename rather than a copy
+    private final Path stagingFolder;
+    private final int thumbnailSize;
+    private final long maximumPixels;
+    private final ThreadPoolExecutor thumbnailExecutor;
+
+    public ProfileImageService(ImageStorage imageStorage,
+                               @Value("${image.thumbnail.size:128}") int thumbnailSize,
+                               @Value("${image.thumbnail.threads:2}") int thumbnailThreads,
+                               @Value("${image.thumbnail.queue-capacity:100}") int thumbnailQueueCapacity,
+                               @Value("${image.thumbnail.maximum-pixels:25000000}") long maximumPixels) {
+        this.imageStorage = imageStorage;
+        this.stagingFolder = imageStorage.getRootFolder().resolve(STAGING_FOLDER);
+        this.thumbnailSize = thumbnailSize;
+        this.maximumPixels = maximumPixels;
+        AtomicInteger counter = new AtomicInteger();
+        this.thumbnailExecutor = new ThreadPoolExecutor(thumbnailThreads, thumbnailThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(thumbnailQueueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "profile-image-thumbnail-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Path stage(MultipartFile profileImage) throws IOException, NotAnImageFileException {
+        if (profileImage == null) {
+            return null;
+        }
+        Path upload = Files.createTempFile(createStagingFolder(), "upload", null);
+        // lets the container move its own temp file into place instead of copying the body through the heap
+        profileImage.transferTo(upload.toFile());
+        String extension = getImageExtension(upload);
+        if (extension == null) {
+            Files.deleteIfExists(upload);
+            throw new NotAnImageFileException(profileImage.getOriginalFilename() + NOT_AN_IMAGE_FILE);
+        }
+        // the staged name carries the detected type, so the image is published and served as what it is
+        Path stagedImage = upload.resolveSibling(upload.getFileName() + DOT + extension);
+        Files.move(upload, stagedImage);
+        return stagedImage;
+    }
+
+    // returns the name the image is published under
+    public String publish(Path stagedImage, String username) throws IOException {
+        String extension = StringUtils.substringAfterLast(stagedImage.getFileName().toString(), DOT);
+        String fileName = username + DOT + extension;
+        imageStorage.store(stagedImage, username, fileName);
+        deleteOtherImages(username, extension);
+        try {
+            thumbnailExecutor.execute(() -> createThumbnail(username, fileName, username + THUMBNAIL_SUFFIX + DOT + JPG_EXTENSION));
+        } catch (RejectedExecutionException ex) {
+            LOGGER.warn("Thumbnail queue is full, skipping thumbnail for: {}", username);
+        }
+        return fileName;
+    }
+
+    public void discard(Path stagedImage) {
+        if (stagedImage == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(stagedImage);
+        } catch (IOException ex) {
+            LOGGER.warn("Could not delete staged image {}: {}", stagedImage, ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        thumbnailExecutor.shutdown();
+    }
+
+    private void createThumbnail(String username, String fileName, String thumbnailName) {
+        Path temporaryThumbnail = null;
+        try {
+            BufferedImage image = readImage(imageStorage.resolve(username, fileName));
+            if (image == null) {
+                return;
+            }
+            double scale = Math.min((double) thumbnailSize / image.getWidth(), (double) thumbnailSize / image.getHeight());
+            int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+            BufferedImage scaled = new BufferedImage(thumbnailSize, thumbnailSize, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, thumbnailSize, thumbnailSize);
+                graphics.drawImage(image, (thumbnailSize - width) / 2, (thumbnailSize - height) / 2, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            temporaryThumbnail = Files.createTempFile(createStagingFolder(), "thumbnail", DOT + JPG_EXTENSION);
+            ImageIO.write(scaled, JPG_EXTENSION, temporaryThumbnail.toFile());
+            imageStorage.store(temporaryThumbnail, username, thumbnailName);
+        } catch (IOException | RuntimeException ex) {
+            // uploads are untrusted, a broken one costs its own thumbnail and never the worker
+            LOGGER.warn("Could not create thumbnail {}: {}", thumbnailName, ex.getMessage());
+            discard(temporaryThumbnail);
+        }
+    }
+
+    // checks the dimensions the header declares before decoding, a tiny file can declare a raster of several gigabytes
+    private BufferedImage readImage(Path file) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = stream == null ? null : ImageIO.getImageReaders(stream);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maximumPixels) {
+                    LOGGER.warn("Image {} declares {} pixels, more than the {} a thumbnail is made for", file.getFileName(), pixels, maximumPixels);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // an upload of another type replaces the previous image instead of leaving it next to the new one
+    private void deleteOtherImages(String username, String extension) {
+        for (String otherExtension : IMAGE_EXTENSIONS) {
+            if (otherExtension.equals(extension)) {
+                continue;
+            }
+            Path otherImage = imageStorage.resolve(username, username + DOT + otherExtension);
+            try {
+                if (otherImage != null) {
+                    Files.deleteIfExists(otherImage);
+                }
+            } catch (IOException ex) {
+                LOGGER.warn("Could not delete previous image {}: {}", otherImage, ex.getMessage());
+            }
+        }
+    }
+
+    private Path createStagingFolder() throws IOException {
+        if (!Files.exists(stagingFolder)) {
+            Files.createDirectories(stagingFolder);
+            LOGGER.info(DIRECTORY_CREATED, stagingFolder);
+        }
+        return stagingFolder;
+    }
+
+    private String getImageExtension(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SIGNATURE_LENGTH);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                // keep reading until the signature bytes are in or the file ends
+            }
+        }
+        byte[] bytes = header.array();
+        int length = header.position();
+        if (startsWith(bytes, length, JPEG_SIGNATURE)) {
+            return JPG_EXTENSION;
+        }
+        if (startsWith(bytes, length, PNG_SIGNATURE)) {
+            return PNG_EXTENSION;
+        }
+        return startsWith(bytes, length, GIF_SIGNATURE) ? GIF_EXTENSION : null;
+    }
+
+    private static boolean startsWith(byte[] bytes, int length, byte[] signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (bytes[i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.user.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.example.user.constant.UserConstant.EMAIL_UNIQUE_CONSTRAINT;
+import static com.example.user.constant.UserConstant.USERNAME_UNIQUE_CONSTRAINT;
+import static com.example.user.constant.UserConstant.USER_ID_UNIQUE_CONSTRAINT;
+
+@Component
+@ConditionalOnProperty(name = "user.schema.check-unique-constraints", havingValue = "true", matchIfMissing = true)
+public class UniqueConstraintCheck implements ApplicationRunner {
+
+    private static final String USER_TABLE = "user";
+
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // ddl-auto only logs a constraint it failed to add, typically because of existing duplicates,
+        // and the duplicate checks then silently rely on a constraint that is not there
+        Map<String, String> constraints = new LinkedHashMap<>();
+        constraints.put("username", USERNAME_UNIQUE_CONSTRAINT);
+        constraints.put("email", EMAIL_UNIQUE_CONSTRAINT);
+        constraints.put("user_id", USER_ID_UNIQUE_CONSTRAINT);
+        Set<String> uniqueColumns = findUniqueColumns();
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<String, String> constraint : constraints.entrySet()) {
+            String column = constraint.getKey();
+            if (!uniqueColumns.contains(column)) {
+                Integer duplicates = jdbcTemplate.queryForObject("select count(*) from (select " + column + " from "
+                        + USER_TABLE + " group by " + column + " having count(*) > 1) duplicates", Integer.class);
+                missing.add(constraint.getValue() + " (" + duplicates + " duplicated values of " + column + ")");
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("The user table is missing unique constraints " + missing
+                    + ", remove the duplicated rows so they can be created");
+        }
+        LOGGER.info("Unique constraints on {} are in place", constraints.keySet());
+    }
+
+    private Set<String> findUniqueColumns() {
+        return jdbcTemplate.execute((ConnectionCallback<Set<String>>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String table = metaData.storesUpperCaseIdentifiers() ? USER_TABLE.toUpperCase() : USER_TABLE;
+            Map<String, Set<String>> indexColumns = new HashMap<>();
+            try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), table, true, false)) {
+                while (indexes.next()) {
+                    String indexName = indexes.getString("INDEX_NAME");
+                    String columnName = indexes.getString("COLUMN_NAME");
+                    if (indexName != null && columnName != null) {
+                        indexColumns.computeIfAbsent(indexName, name -> new TreeSet<>()).add(columnName.toLowerCase());
+                    }
+                }
+            }
+            // only an index on the column alone makes its values unique
+            Set<String> uniqueColumns = new TreeSet<>();
+            for (Set<String> columns : indexColumns.values()) {
+                if (columns.size() == 1) {
+                    uniqueColumns.addAll(columns);
+                }
+            }
+            return uniqueColumns;
+        });
+    }
+}
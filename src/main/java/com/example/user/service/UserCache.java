@@ -0,0 +1,22 @@
+package com.example.user.service;
+
+import com.example.user.domain.User;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+public interface UserCache {
+
+    User getByUsername(String username, Function<String, User> loader);
+
+    User getByEmail(String email, Function<String, User> loader);
+
+    void evict(User user);
+
+    void evictById(Long id);
+
+    void evictByUsername(Collection<String> usernames);
+
+    void evictAll(Collection<User> users);
+
+}
@@ -0,0 +1,13 @@
+package com.example.user.service;
+
+import com.example.user.domain.UserImportResult;
+
+import java.io.IOException;
+import java.io.Reader;
+
+public interface UserImportService {
+
+    UserImportResult importCsv(Reader reader) throws IOException;
+
+    UserImportResult importJsonLines(Reader reader) throws IOException;
+}
@@ -1,37 +1,52 @@
 package com.example.user.service;
 
 import com.example.user.domain.User;
+import com.example.user.domain.UserPage;
+import com.example.user.domain.UserPatch;
+import com.example.user.domain.UserSummary;
 import com.example.user.exception.EmailExistException;
 import com.example.user.exception.EmailNotFoundException;
+import com.example.user.exception.InvalidRequestException;
+import com.example.user.exception.NotAnImageFileException;
 import com.example.user.exception.UserNotFoundException;
 import com.example.user.exception.UsernameExistException;
+import org.springframework.data.domain.Sort;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
 
     User register(String firstName, String lastName, String username, String email)
             throws UsernameExistException, EmailExistException, UserNotFoundException;
 
-    List<User> getUsers();
+    UserPage getUsers(Long cursor, Integer size, Sort.Direction direction);
+
+    UserPage getUsersByRole(String role, Long cursor, Integer size) throws InvalidRequestException;
+
+    void streamUsers(Consumer<UserSummary> consumer);
 
     User findUserByUsername(String username);
 
+    UserSummary findUserSummaryByUsername(String username);
+
     User findUserByEmail(String email);
 
     User addNewUser(String firstName, String lastName, String username, String email, String role, boolean isNonLocked,
-                    boolean isActive, MultipartFile profileImage) throws UserNotFoundException, UsernameExistException, EmailExistException, IOException;
+                    boolean isActive, MultipartFile profileImage) throws UserNotFoundException, UsernameExistException, EmailExistException, IOException, NotAnImageFileException, InvalidRequestException;
 
     User updateUser(String currentUsername, String newFirstName, String newLastName, String newUsername, String newEmail,
-                    String role, boolean isNonLocked, boolean isActive, MultipartFile profileImage) throws UserNotFoundException, UsernameExistException, EmailExistException, IOException;
+                    String role, boolean isNonLocked, boolean isActive, MultipartFile profileImage) throws UserNotFoundException, UsernameExistException, EmailExistException, IOException, NotAnImageFileException, InvalidRequestException;
+
+    User patchUser(String currentUsername, UserPatch patch)
+            throws UserNotFoundException, UsernameExistException, EmailExistException, InvalidRequestException;
 
     void deleteUser(long id);
 
     void resetPassword(String email) throws EmailNotFoundException;
 
-    User updateProfileImage(String username, MultipartFile newProfileImage) throws UserNotFoundException, UsernameExistException, EmailExistException, IOException;
+    User updateProfileImage(String username, MultipartFile newProfileImage) throws UserNotFoundException, UsernameExistException, EmailExistException, IOException, NotAnImageFileException;
 
 
 }
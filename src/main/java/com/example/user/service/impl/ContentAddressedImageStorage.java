@@ -0,0 +1,120 @@
+package com.example.user.service.impl;
+
+import com.google.common.hash.Hashing;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.example.user.constant.FileConstant.*;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+@Service
+@ConditionalOnProperty(name = "image.storage.layout", havingValue = "content-addressed")
+public class ContentAddressedImageStorage extends ShardedImageStorage {
+
+    private static final String BLOB_FOLDER = ".blobs";
+    private static final String LINK_SUFFIX = ".link";
+    private static final String LINK_COUNT = "unix:nlink";
+
+    private final Path blobFolder;
+    private final Duration blobGracePeriod;
+
+    public ContentAddressedImageStorage(@Value("${image.storage.folder:}") String folder,
+                                        @Value("${image.storage.blob-grace-period:1h}") Duration blobGracePeriod) {
+        super(folder);
+        this.blobFolder = rootFolder.resolve(BLOB_FOLDER);
+        this.blobGracePeriod = blobGracePeriod;
+    }
+
+    @Override
+    public void store(Path source, String username, String fileName) throws IOException {
+        Path target = resolve(username, fileName);
+        if (target == null) {
+            throw new IOException("Invalid image location for: " + username);
+        }
+        String hash = com.google.common.io.Files.asByteSource(source.toFile()).hash(Hashing.sha256()).toString();
+        Path blob = blobFolder.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + DOT + StringUtils.substringAfterLast(fileName, DOT));
+        createDirectories(blob.getParent());
+        createDirectories(target.getParent());
+        // identical uploads share one blob; the user path is a hard link swapped in atomically
+        Path link = Files.createTempFile(target.getParent(), target.getFileName().toString(), LINK_SUFFIX);
+        try {
+            if (!linkExistingBlob(blob, link)) {
+                move(source, blob);
+                link(blob, link);
+            }
+            move(link, target);
+        } finally {
+            Files.deleteIfExists(link);
+        }
+        Files.deleteIfExists(source);
+        LOGGER.info(FILE_SAVED_IN_FILE_SYSTEM, target);
+    }
+
+    // Deletes blobs no user file links to any more, once they are older than the grace period
+    @Scheduled(fixedDelayString = "${image.storage.blob-sweep-interval:3600000}")
+    public void sweepBlobs() {
+        if (!Files.isDirectory(blobFolder)) {
+            return;
+        }
+        FileTime cutoff = FileTime.from(Instant.now().minus(blobGracePeriod));
+        List<Path> blobs;
+        try (Stream<Path> files = Files.walk(blobFolder)) {
+            blobs = files.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException ex) {
+            LOGGER.warn("Could not list image blobs in {}: {}", blobFolder, ex.getMessage());
+            return;
+        }
+        int deleted = 0;
+        try {
+            for (Path blob : blobs) {
+                // a blob that is only linked from its own folder is no one's image any more
+                if ((Integer) Files.getAttribute(blob, LINK_COUNT) == 1
+                        && Files.getLastModifiedTime(blob).compareTo(cutoff) < 0 && Files.deleteIfExists(blob)) {
+                    deleted++;
+                }
+            }
+        } catch (UnsupportedOperationException | IllegalArgumentException ex) {
+            LOGGER.warn("The file system of {} does not report link counts, image blobs are not swept", blobFolder);
+        } catch (IOException ex) {
+            LOGGER.warn("Stopped sweeping image blobs in {}: {}", blobFolder, ex.getMessage());
+        }
+        if (deleted > 0) {
+            LOGGER.info("Deleted {} unreferenced image blobs", deleted);
+        }
+    }
+
+    private boolean linkExistingBlob(Path blob, Path link) throws IOException {
+        try {
+            // refreshed so a sweep running now leaves the blob to this upload
+            Files.setLastModifiedTime(blob, FileTime.from(Instant.now()));
+            link(blob, link);
+            return true;
+        } catch (NoSuchFileException ex) {
+            return false;
+        }
+    }
+
+    private static void link(Path blob, Path link) throws IOException {
+        // the unique temp file reserves the name, the link takes its place
+        Files.deleteIfExists(link);
+        try {
+            Files.createLink(link, blob);
+        } catch (UnsupportedOperationException ex) {
+            Files.copy(blob, link, REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.user.service.impl;
+
+import com.example.user.service.ImageStorage;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static com.example.user.constant.FileConstant.DIRECTORY_CREATED;
+import static com.example.user.constant.FileConstant.FILE_SAVED_IN_FILE_SYSTEM;
+import static com.example.user.constant.FileConstant.STAGING_FOLDER;
+import static com.example.user.constant.FileConstant.USER_FOLDER;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+@Service
+@ConditionalOnProperty(name = "image.storage.layout", havingValue = "flat", matchIfMissing = true)
+public class FlatImageStorage implements ImageStorage {
+
+    protected final Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    protected final Path rootFolder;
+
+    public FlatImageStorage(@Value("${image.storage.folder:}") String folder) {
+        this.rootFolder = Paths.get(StringUtils.isBlank(folder) ? USER_FOLDER : folder).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public Path getRootFolder() {
+        return rootFolder;
+    }
+
+    @Override
+    public Path resolve(String username, String fileName) {
+        Path file = getUserFolder(username).resolve(fileName).normalize();
+        // uploads are written to the staging folder before they are validated, they are never served from there
+        return file.startsWith(rootFolder) && !file.startsWith(rootFolder.resolve(STAGING_FOLDER)) ? file : null;
+    }
+
+    @Override
+    public void store(Path source, String username, String fileName) throws IOException {
+        Path target = resolve(username, fileName);
+        if (target == null) {
+            throw new IOException("Invalid image location for: " + username);
+        }
+        createDirectories(target.getParent());
+        move(source, target);
+        LOGGER.info(FILE_SAVED_IN_FILE_SYSTEM, target);
+    }
+
+    protected Path getUserFolder(String username) {
+        return rootFolder.resolve(username);
+    }
+
+    protected void createDirectories(Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            Files.createDirectories(folder);
+            LOGGER.info(DIRECTORY_CREATED, folder);
+        }
+    }
+
+    protected void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, REPLACE_EXISTING);
+        }
+    }
+}
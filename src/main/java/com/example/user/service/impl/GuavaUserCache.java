@@ -0,0 +1,186 @@
+package com.example.user.service.impl;
+
+import com.example.user.domain.User;
+import com.example.user.service.UserCache;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+@Service
+@ConditionalOnProperty(name = "user.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class GuavaUserCache implements UserCache {
+
+    // Only existing users are cached, so a user created on another node is found here straight away
+    private final Cache<String, User> usersByUsername;
+    private final Cache<String, User> usersByEmail;
+
+    // the keys each cached user is held under, so writes evict without scanning the caches
+    private final ConcurrentMap<Long, Set<String>> usernameKeys = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Set<String>> emailKeys = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> idsByUsername = new ConcurrentHashMap<>();
+
+    public GuavaUserCache(@Value("${user.cache.maximum-size:10000}") long maximumSize,
+                          @Value("${user.cache.expire-after-write:5m}") Duration expireAfterWrite,
+                          MeterRegistry meterRegistry) {
+        usersByUsername = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .removalListener(this::unindexUsername)
+                .build();
+        usersByEmail = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .removalListener(this::unindexEmail)
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, usersByUsername, "users", "key", "username");
+        GuavaCacheMetrics.monitor(meterRegistry, usersByEmail, "users", "key", "email");
+    }
+
+    @Override
+    public User getByUsername(String username, Function<String, User> loader) {
+        return get(usersByUsername, usernameKeys, username, loader);
+    }
+
+    @Override
+    public User getByEmail(String email, Function<String, User> loader) {
+        return get(usersByEmail, emailKeys, email, loader);
+    }
+
+    @Override
+    public void evict(User user) {
+        evictAll(Collections.singleton(user));
+    }
+
+    @Override
+    public void evictById(Long id) {
+        evictAfterCompletion(() -> invalidateById(id));
+    }
+
+    @Override
+    public void evictByUsername(Collection<String> usernames) {
+        evictAfterCompletion(() -> {
+            for (String username : usernames) {
+                invalidateById(idsByUsername.get(StringUtils.lowerCase(username)));
+            }
+        });
+    }
+
+    @Override
+    public void evictAll(Collection<User> users) {
+        evictAfterCompletion(() -> {
+            for (User user : users) {
+                // also drops entries under the user's previous username and email
+                invalidateById(user.getId());
+                invalidate(usersByUsername, user.getUsername());
+                invalidate(usersByEmail, user.getEmail());
+            }
+        });
+    }
+
+    private User get(Cache<String, User> cache, ConcurrentMap<Long, Set<String>> keys, String key,
+                     Function<String, User> loader) {
+        if (key == null) {
+            return loader.apply(null);
+        }
+        try {
+            return cache.get(key, () -> {
+                User user = loader.apply(key);
+                if (user != null) {
+                    keys.computeIfAbsent(user.getId(), id -> ConcurrentHashMap.newKeySet()).add(key);
+                    idsByUsername.put(StringUtils.lowerCase(user.getUsername()), user.getId());
+                }
+                return user;
+            });
+        } catch (CacheLoader.InvalidCacheLoadException ex) {
+            // the loader found no user, which is not cached
+            return null;
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            Throwables.throwIfUnchecked(ex.getCause());
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private void evictAfterCompletion(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // a concurrent lookup may reload the old row before the surrounding transaction commits
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    private void invalidateById(Long id) {
+        if (id == null) {
+            return;
+        }
+        invalidateAll(usersByUsername, usernameKeys.get(id));
+        invalidateAll(usersByEmail, emailKeys.get(id));
+    }
+
+    private static void invalidateAll(Cache<String, User> cache, Set<String> keys) {
+        if (keys != null) {
+            // copied first, the removal listener updates the set while the keys are invalidated
+            List<String> copy = new ArrayList<>(keys);
+            cache.invalidateAll(copy);
+        }
+    }
+
+    private static void invalidate(Cache<String, User> cache, String key) {
+        if (key != null) {
+            cache.invalidate(key);
+        }
+    }
+
+    private void unindexUsername(RemovalNotification<String, User> removal) {
+        unindex(usersByUsername, usernameKeys, removal);
+    }
+
+    private void unindexEmail(RemovalNotification<String, User> removal) {
+        unindex(usersByEmail, emailKeys, removal);
+    }
+
+    private void unindex(Cache<String, User> cache, ConcurrentMap<Long, Set<String>> keys,
+                         RemovalNotification<String, User> removal) {
+        User user = removal.getValue();
+        String key = removal.getKey();
+        // a key that was loaded again straight away stays indexed
+        if (user == null || key == null || cache.asMap().containsKey(key)) {
+            return;
+        }
+        Set<String> remaining = keys.computeIfPresent(user.getId(), (id, userKeys) -> {
+            userKeys.remove(key);
+            return userKeys.isEmpty() ? null : userKeys;
+        });
+        if (remaining == null && !usernameKeys.containsKey(user.getId()) && !emailKeys.containsKey(user.getId())) {
+            idsByUsername.remove(StringUtils.lowerCase(user.getUsername()), user.getId());
+        }
+    }
+}
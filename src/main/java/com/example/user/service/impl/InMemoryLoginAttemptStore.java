@@ -0,0 +1,152 @@
+package com.example.user.service.impl;
+
+import com.example.user.service.LoginAttemptStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Service
+@ConditionalOnProperty(name = "login-attempt.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryLoginAttemptStore implements LoginAttemptStore {
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+    // marks the slots of a counter the purge is removing, an increment that meets it waits for the purge to decide
+    private static final long SEALED = Long.MIN_VALUE;
+
+    // never evicts, evicting a live counter would silently reset the lockout it enforces; only the purge trims it
+    private final ConcurrentHashMap<String, AtomicLongArray> counters = new ConcurrentHashMap<>();
+    private final Clock clock;
+    private final long bucketMillis;
+    private final int buckets;
+    private final long maximumKeys;
+
+    @Autowired
+    public InMemoryLoginAttemptStore(@Value("${login-attempt.window:5m}") Duration window,
+                                     @Value("${login-attempt.buckets:10}") int buckets,
+                                     @Value("${login-attempt.maximum-keys:5000000}") long maximumKeys) {
+        this(window, buckets, maximumKeys, Clock.systemUTC());
+    }
+
+    InMemoryLoginAttemptStore(Duration window, int buckets, long maximumKeys, Clock clock) {
+        this.clock = clock;
+        this.buckets = buckets;
+        this.bucketMillis = Math.max(1, window.toMillis() / buckets);
+        this.maximumKeys = maximumKeys;
+    }
+
+    @Override
+    public long increment(String key) {
+        long epoch = currentEpoch();
+        int slot = (int) (epoch % buckets);
+        while (true) {
+            AtomicLongArray counter = counters.get(key);
+            if (counter == null) {
+                if (isFull()) {
+                    return UNTRACKED;
+                }
+                AtomicLongArray created = new AtomicLongArray(buckets);
+                counter = counters.putIfAbsent(key, created);
+                if (counter == null) {
+                    counter = created;
+                }
+            }
+            if (incrementSlot(key, counter, slot, epoch)) {
+                return sum(counter, epoch);
+            }
+            // the purge removed this counter meanwhile, the attempt goes to the one that replaces it
+        }
+    }
+
+    @Override
+    public long count(String key) {
+        AtomicLongArray counter = counters.get(key);
+        if (counter == null) {
+            // fails closed, a key that cannot be tracked is throttled until the purge makes room
+            return isFull() ? UNTRACKED : 0;
+        }
+        return sum(counter, currentEpoch());
+    }
+
+    @Override
+    public void reset(String key) {
+        counters.remove(key);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, counters.mappingCount());
+    }
+
+    @Scheduled(fixedDelayString = "${login-attempt.purge-interval:60000}")
+    public synchronized void purge() {
+        long epoch = currentEpoch();
+        for (Map.Entry<String, AtomicLongArray> entry : counters.entrySet()) {
+            if (seal(entry.getValue(), epoch)) {
+                counters.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private boolean incrementSlot(String key, AtomicLongArray counter, int slot, long epoch) {
+        while (true) {
+            long current = counter.get(slot);
+            if (current == SEALED) {
+                if (counters.get(key) != counter) {
+                    return false;
+                }
+                Thread.onSpinWait();
+                continue;
+            }
+            // each slot packs the bucket epoch in the high bits and its count in the low bits, so a stale slot resets in the same write
+            long updated = (current >>> 32) == epoch ? current + 1 : (epoch << 32) | 1;
+            if (counter.compareAndSet(slot, current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    // seals every slot of a counter whose attempts all left the window, and unseals it again if one arrives meanwhile
+    private boolean seal(AtomicLongArray counter, long epoch) {
+        for (int i = 0; i < buckets; i++) {
+            long value = counter.get(i);
+            if (isLive(value, epoch) || !counter.compareAndSet(i, value, SEALED)) {
+                for (int j = 0; j < i; j++) {
+                    counter.set(j, 0);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long sum(AtomicLongArray counter, long epoch) {
+        long total = 0;
+        for (int i = 0; i < buckets; i++) {
+            long value = counter.get(i);
+            if (isLive(value, epoch)) {
+                total += value & COUNT_MASK;
+            }
+        }
+        return total;
+    }
+
+    private boolean isLive(long value, long epoch) {
+        return value != SEALED && epoch - (value >>> 32) < buckets;
+    }
+
+    private boolean isFull() {
+        return size() >= maximumKeys;
+    }
+
+    private long currentEpoch() {
+        return clock.millis() / bucketMillis;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.user.service.impl;
+
+import com.example.user.domain.User;
+import com.example.user.service.UserCache;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+@Service
+@ConditionalOnProperty(name = "user.cache.enabled", havingValue = "false")
+public class NoOpUserCache implements UserCache {
+
+    @Override
+    public User getByUsername(String username, Function<String, User> loader) {
+        return loader.apply(username);
+    }
+
+    @Override
+    public User getByEmail(String email, Function<String, User> loader) {
+        return loader.apply(email);
+    }
+
+    @Override
+    public void evict(User user) {
+    }
+
+    @Override
+    public void evictById(Long id) {
+    }
+
+    @Override
+    public void evictByUsername(Collection<String> usernames) {
+    }
+
+    @Override
+    public void evictAll(Collection<User> users) {
+    }
+}
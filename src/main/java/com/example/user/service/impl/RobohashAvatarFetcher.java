@@ -0,0 +1,44 @@
+package com.example.user.service.impl;
+
+import com.example.user.service.AvatarFetcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static com.example.user.constant.FileConstant.TEMP_PROFILE_IMAGE_BASE_URL;
+
+@Service
+public class RobohashAvatarFetcher implements AvatarFetcher {
+
+    private final String baseUrl;
+    private final int connectTimeout;
+    private final int readTimeout;
+
+    public RobohashAvatarFetcher(@Value("${avatar.base-url:" + TEMP_PROFILE_IMAGE_BASE_URL + "}") String baseUrl,
+                                 @Value("${avatar.connect-timeout:2s}") Duration connectTimeout,
+                                 @Value("${avatar.read-timeout:5s}") Duration readTimeout) {
+        this.baseUrl = baseUrl;
+        this.connectTimeout = (int) connectTimeout.toMillis();
+        this.readTimeout = (int) readTimeout.toMillis();
+    }
+
+    @Override
+    public byte[] fetch(String username) throws IOException {
+        URL url = new URL(baseUrl + UriUtils.encodePathSegment(username, StandardCharsets.UTF_8));
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        try (InputStream inputStream = connection.getInputStream()) {
+            return inputStream.readAllBytes();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.user.service.impl;
+
+import com.google.common.hash.Hashing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+@Service
+@ConditionalOnProperty(name = "image.storage.layout", havingValue = "sharded")
+public class ShardedImageStorage extends FlatImageStorage {
+
+    public ShardedImageStorage(@Value("${image.storage.folder:}") String folder) {
+        super(folder);
+    }
+
+    @Override
+    protected Path getUserFolder(String username) {
+        // two levels of 256 directories keep every folder small, whatever the number of users
+        String hash = Hashing.sha256().hashString(username, StandardCharsets.UTF_8).toString();
+        return rootFolder.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(username);
+    }
+}
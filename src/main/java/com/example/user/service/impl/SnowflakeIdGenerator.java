@@ -0,0 +1,82 @@
+package com.example.user.service.impl;
+
+import com.example.user.service.IdGenerator;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnowflakeIdGenerator.class);
+
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long EPOCH = 1609459200000L; // 2021-01-01T00:00:00Z
+
+    private final long node;
+    private final Clock clock;
+    // timestamp and sequence packed as in the id, without the node bits
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public SnowflakeIdGenerator(@Value("${id.generator.node:}") String node) {
+        this(resolveNodeId(node));
+    }
+
+    public SnowflakeIdGenerator(int node) {
+        this(node, Clock.systemUTC());
+    }
+
+    SnowflakeIdGenerator(int node, Clock clock) {
+        if (node < 0 || node > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + node);
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    @Override
+    public long nextId() {
+        long now = clock.millis() - EPOCH;
+        while (true) {
+            long current = state.get();
+            // a clock that stepped back or a sequence that ran out borrows from the next millisecond, so ids never repeat
+            long next = (current >>> SEQUENCE_BITS) < now ? now << SEQUENCE_BITS : current + 1;
+            if (state.compareAndSet(current, next)) {
+                return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | node << SEQUENCE_BITS | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    public int getNodeId() {
+        return (int) node;
+    }
+
+    public static int resolveNodeId(String node) {
+        if (StringUtils.isNotBlank(node)) {
+            return Integer.parseInt(node.trim());
+        }
+        int nodeId;
+        try {
+            nodeId = Math.floorMod(InetAddress.getLocalHost().getHostName().hashCode(), MAX_NODE_ID + 1);
+        } catch (UnknownHostException ex) {
+            nodeId = ThreadLocalRandom.current().nextInt(MAX_NODE_ID + 1);
+        }
+        // two hosts land on the same node one time in a thousand, and their ids then collide
+        LOGGER.warn("No id.generator.node configured, using node id {} derived from the host name; "
+                + "configure a unique node per instance outside development", nodeId);
+        return nodeId;
+    }
+}
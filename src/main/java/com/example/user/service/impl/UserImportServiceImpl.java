@@ -0,0 +1,404 @@
+package com.example.user.service.impl;
+
+import com.example.user.domain.User;
+import com.example.user.domain.UserImportResult;
+import com.example.user.domain.UserImportRow;
+import com.example.user.enumeration.Role;
+import com.example.user.repository.UserRepository;
+import com.example.user.service.IdGenerator;
+import com.example.user.service.UserCache;
+import com.example.user.service.UserImportService;
+import com.example.user.utility.BoundedPasswordEncoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.example.user.constant.FileConstant.DEFAULT_USER_IMAGE_PATH;
+import static com.example.user.constant.UserConstant.EMAIL_ALREADY_EXISTS;
+import static com.example.user.constant.UserConstant.EMAIL_UNIQUE_CONSTRAINT;
+import static com.example.user.constant.UserConstant.MAXIMUM_USER_ID_ATTEMPTS;
+import static com.example.user.constant.UserConstant.UNKNOWN_ROLE;
+import static com.example.user.constant.UserConstant.USERNAME_ALREADY_EXISTS;
+import static com.example.user.constant.UserConstant.USERNAME_UNIQUE_CONSTRAINT;
+import static com.example.user.constant.UserConstant.USER_ID_UNIQUE_CONSTRAINT;
+
+@Service
+public class UserImportServiceImpl implements UserImportService {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${user.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${user.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    public UserImportServiceImpl(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public UserImportResult importCsv(Reader reader) throws IOException {
+        CsvReader csv = new CsvReader(new BufferedReader(reader));
+        List<String> headerFields = csv.readRecord();
+        UserImportResult result = new UserImportResult();
+        if (headerFields == null) {
+            return result;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < headerFields.size(); i++) {
+            columns.put(headerFields.get(i).trim().toLowerCase(), i);
+        }
+        String profileImageBaseUrl = getProfileImageBaseUrl();
+        List<ImportLine> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = csv.lineNumber + 1;
+        List<String> fields;
+        while ((fields = csv.readRecord()) != null) {
+            long recordLine = lineNumber;
+            lineNumber = csv.lineNumber + 1;
+            if (fields.size() == 1 && StringUtils.isBlank(fields.get(0))) {
+                continue;
+            }
+            UserImportRow row = new UserImportRow();
+            row.setFirstName(column(fields, columns, "firstname"));
+            row.setLastName(column(fields, columns, "lastname"));
+            row.setUsername(column(fields, columns, "username"));
+            row.setEmail(column(fields, columns, "email"));
+            row.setRole(column(fields, columns, "role"));
+            row.setActive(!"false".equalsIgnoreCase(column(fields, columns, "isactive")));
+            row.setNonLocked(!"false".equalsIgnoreCase(column(fields, columns, "isnonlocked")));
+            chunk.add(new ImportLine(recordLine, row));
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, profileImageBaseUrl, result);
+                chunk.clear();
+            }
+        }
+        importChunk(chunk, profileImageBaseUrl, result);
+        return result;
+    }
+
+    @Override
+    public UserImportResult importJsonLines(Reader reader) throws IOException {
+        UserImportResult result = new UserImportResult();
+        String profileImageBaseUrl = getProfileImageBaseUrl();
+        ObjectReader rowReader = objectMapper.readerFor(UserImportRow.class);
+        List<ImportLine> chunk = new ArrayList<>(chunkSize);
+        BufferedReader lines = new BufferedReader(reader);
+        long lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (StringUtils.isBlank(line)) {
+                continue;
+            }
+            UserImportRow row;
+            try {
+                row = rowReader.readValue(line);
+            } catch (JsonProcessingException ex) {
+                // a malformed line is reported like any other rejected row instead of failing the rows after it
+                reject(result, lineNumber, null, ex.getOriginalMessage());
+                continue;
+            }
+            chunk.add(new ImportLine(lineNumber, row));
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, profileImageBaseUrl, result);
+                chunk.clear();
+            }
+        }
+        importChunk(chunk, profileImageBaseUrl, result);
+        return result;
+    }
+
+    private void importChunk(List<ImportLine> chunk, String profileImageBaseUrl, UserImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<ImportLine> accepted = validate(chunk, result);
+        if (accepted.isEmpty()) {
+            return;
+        }
+        List<User> users = new ArrayList<>(accepted.size());
+        for (ImportLine importLine : accepted) {
+            users.add(createUser(importLine.row, profileImageBaseUrl));
+        }
+        encodePasswords(users);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < users.size(); i++) {
+                    entityManager.persist(users.get(i));
+                    if ((i + 1) % batchSize == 0) {
+                        entityManager.flush();
+                        entityManager.clear();
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Could not import chunk of {} users, retrying row by row: {}", users.size(),
+                    NestedExceptionUtils.getMostSpecificCause(ex).getMessage());
+            importRowByRow(accepted, users, result);
+            return;
+        }
+        userCache.evictAll(users);
+        result.setImported(result.getImported() + users.size());
+    }
+
+    // only the rows that fail on their own are rejected, with the reason of their own failure
+    private void importRowByRow(List<ImportLine> accepted, List<User> users, UserImportResult result) {
+        List<User> imported = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            for (int attempt = 1; ; attempt++) {
+                // the rolled back chunk may have assigned an id that was never written
+                user.setId(null);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        entityManager.persist(user);
+                        entityManager.flush();
+                    });
+                    imported.add(user);
+                    break;
+                } catch (RuntimeException ex) {
+                    String violatedConstraint = getViolatedConstraint(ex);
+                    if (StringUtils.containsIgnoreCase(violatedConstraint, USER_ID_UNIQUE_CONSTRAINT)
+                            && attempt < MAXIMUM_USER_ID_ATTEMPTS) {
+                        user.setUserId(String.valueOf(idGenerator.nextId()));
+                        continue;
+                    }
+                    reject(result, accepted.get(i), getRejectionMessage(violatedConstraint, ex));
+                    break;
+                }
+            }
+        }
+        userCache.evictAll(imported);
+        result.setImported(result.getImported() + imported.size());
+    }
+
+    private String getViolatedConstraint(RuntimeException ex) {
+        ConstraintViolationException violation = ExceptionUtils.throwableOfType(ex, ConstraintViolationException.class);
+        return violation == null || violation.getConstraintName() == null
+                ? NestedExceptionUtils.getMostSpecificCause(ex).getMessage() : violation.getConstraintName();
+    }
+
+    private String getRejectionMessage(String violatedConstraint, RuntimeException ex) {
+        if (StringUtils.containsIgnoreCase(violatedConstraint, USERNAME_UNIQUE_CONSTRAINT)) {
+            return USERNAME_ALREADY_EXISTS;
+        }
+        if (StringUtils.containsIgnoreCase(violatedConstraint, EMAIL_UNIQUE_CONSTRAINT)) {
+            return EMAIL_ALREADY_EXISTS;
+        }
+        return NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+    }
+
+    private List<ImportLine> validate(List<ImportLine> chunk, UserImportResult result) {
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        List<ImportLine> candidates = new ArrayList<>(chunk.size());
+        for (ImportLine importLine : chunk) {
+            UserImportRow row = importLine.row;
+            if (StringUtils.isAnyBlank(row.getFirstName(), row.getLastName(), row.getUsername(), row.getEmail(), row.getRole())) {
+                reject(result, importLine, "firstName, lastName, username, email and role are required");
+            } else if (!isValidRole(row.getRole())) {
+                reject(result, importLine, UNKNOWN_ROLE + row.getRole());
+            } else if (!usernames.add(row.getUsername().toLowerCase())) {
+                reject(result, importLine, USERNAME_ALREADY_EXISTS);
+            } else if (!emails.add(row.getEmail().toLowerCase())) {
+                reject(result, importLine, EMAIL_ALREADY_EXISTS);
+            } else {
+                candidates.add(importLine);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        // one query per chunk instead of two lookups per row
+        Set<String> existingUsernames = new HashSet<>();
+        Set<String> existingEmails = new HashSet<>();
+        for (Object[] existing : userRepository.findExistingUsernamesAndEmails(usernames, emails)) {
+            existingUsernames.add(StringUtils.lowerCase((String) existing[0]));
+            existingEmails.add(StringUtils.lowerCase((String) existing[1]));
+        }
+        List<ImportLine> accepted = new ArrayList<>(candidates.size());
+        for (ImportLine importLine : candidates) {
+            if (existingUsernames.contains(importLine.row.getUsername().toLowerCase())) {
+                reject(result, importLine, USERNAME_ALREADY_EXISTS);
+            } else if (existingEmails.contains(importLine.row.getEmail().toLowerCase())) {
+                reject(result, importLine, EMAIL_ALREADY_EXISTS);
+            } else {
+                accepted.add(importLine);
+            }
+        }
+        return accepted;
+    }
+
+    private User createUser(UserImportRow row, String profileImageBaseUrl) {
+        Role role = Role.valueOf(row.getRole().toUpperCase());
+        User user = new User();
+        user.setUserId(String.valueOf(idGenerator.nextId()));
+        user.setRawPassword(RandomStringUtils.randomAlphanumeric(10));
+        user.setFirstName(row.getFirstName());
+        user.setLastName(row.getLastName());
+        user.setUsername(row.getUsername());
+        user.setEmail(row.getEmail());
+        user.setJoinDate(new Date());
+        user.setActive(row.isActive());
+        user.setNotLocked(row.isNonLocked());
+        user.setRoles(role);
+        user.setProfileImageUrl(profileImageBaseUrl + row.getUsername());
+        return user;
+    }
+
+    private void encodePasswords(List<User> users) {
+        List<String> rawPasswords = new ArrayList<>(users.size());
+        for (User user : users) {
+            rawPasswords.add(user.getRawPassword());
+        }
+        List<String> encodedPasswords = passwordEncoder.encodeAll(rawPasswords);
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setPassword(encodedPasswords.get(i));
+        }
+    }
+
+    private void reject(UserImportResult result, ImportLine importLine, String message) {
+        reject(result, importLine.line, importLine.row.getUsername(), message);
+    }
+
+    private void reject(UserImportResult result, long line, String username, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            result.getErrors().add(new UserImportResult.RowError(line, username, message));
+        }
+    }
+
+    private boolean isValidRole(String role) {
+        try {
+            Role.valueOf(role.toUpperCase());
+            return true;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    private String getProfileImageBaseUrl() {
+        return ServletUriComponentsBuilder.fromCurrentContextPath().path(DEFAULT_USER_IMAGE_PATH).toUriString();
+    }
+
+    private static String column(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index == null || index >= fields.size() ? null : StringUtils.trimToNull(fields.get(index));
+    }
+
+    private static class CsvReader {
+
+        private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+        private final BufferedReader reader;
+        private long lineNumber;
+
+        CsvReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        // returns the fields of the next record, which spans several lines when a quoted field contains line breaks
+        List<String> readRecord() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            if (lineNumber++ == 0 && !line.isEmpty() && line.charAt(0) == BYTE_ORDER_MARK) {
+                line = line.substring(1);
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                for (int i = 0; i < line.length(); i++) {
+                    char c = line.charAt(i);
+                    if (quoted) {
+                        if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            field.append('"');
+                            i++;
+                        } else if (c == '"') {
+                            quoted = false;
+                        } else {
+                            field.append(c);
+                        }
+                    } else if (c == '"') {
+                        quoted = true;
+                    } else if (c == ',') {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                    } else {
+                        field.append(c);
+                    }
+                }
+                if (!quoted || (line = reader.readLine()) == null) {
+                    break;
+                }
+                lineNumber++;
+                field.append('\n');
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private static class ImportLine {
+
+        private final long line;
+        private final UserImportRow row;
+
+        ImportLine(long line, UserImportRow row) {
+            this.line = line;
+            this.row = row;
+        }
+    }
+}
@@ -2,46 +2,67 @@ package com.example.user.service.impl;
 
 import com.example.user.constant.FileConstant;
 import com.example.user.domain.User;
+import com.example.user.domain.UserPage;
+import com.example.user.domain.UserPatch;
+import com.example.user.domain.UserSummary;
 import com.example.user.domain.UserPrincipal;
 import com.example.user.enumeration.Role;
 import com.example.user.exception.EmailExistException;
 import com.example.user.exception.EmailNotFoundException;
+import com.example.user.exception.InvalidRequestException;
+import com.example.user.exception.NotAnImageFileException;
 import com.example.user.exception.UserNotFoundException;
 import com.example.user.exception.UsernameExistException;
 import com.example.user.repository.UserRepository;
 import com.example.user.service.EmailService;
+import com.example.user.service.IdGenerator;
 import com.example.user.service.LoginAttemptService;
+import com.example.user.service.ProfileImageService;
+import com.example.user.service.UserCache;
 import com.example.user.service.UserService;
+import io.micrometer.core.annotation.Timed;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.transaction.Transactional;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static com.example.user.constant.FileConstant.*;
+import static com.example.user.constant.MetricConstant.USER_SERVICE_TIMER;
+import static com.example.user.constant.UserConstant.*;
 import static com.example.user.enumeration.Role.ROLE_USER;
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 @Service
 @Transactional
 @Qualifier("UserDetailsService")
-public class UserServiceImpl implements UserService, UserDetailsService {
+public class UserServiceImpl implements UserService, UserDetailsService, UserDetailsPasswordService {
 
     private final Logger LOGGER = LoggerFactory.getLogger(getClass());
 
@@ -49,7 +70,7 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     private UserRepository userRepository;
 
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordEncoder passwordEncoder;
 
     @Autowired
     private LoginAttemptService loginAttemptService;
@@ -57,166 +78,408 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private ProfileImageService profileImageService;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${user.list.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${user.list.maximum-page-size:500}")
+    private int maximumPageSize;
+
     @Override
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findUserByUsername(username);
-        if (user == null) {
+        User cachedUser = findUserByUsername(username);
+        if (cachedUser == null) {
             LOGGER.error("User not found for username: {}", username);
             throw new UsernameNotFoundException("User not found for username: " + username);
         } else {
+            // the cached user is shared with other requests, the principal gets its own copy to change
+            User user = cachedUser.copy();
             validateLoginAttempt(user);
-            user.setLastLoginDateDisplay(user.getLastLoginDate());
-            user.setLastLoginDate(new Date());
-            userRepository.save(user);
             LOGGER.info("User found for username: {}", username);
             return new UserPrincipal(user);
         }
     }
 
     @Override
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        // the principal may wrap a shared cached user, so the row is updated and the cache entry dropped instead
+        if (userRepository.updatePassword(userDetails.getUsername(), newPassword) > 0) {
+            LOGGER.info("Rehashed password for username: {}", userDetails.getUsername());
+            userCache.evictByUsername(Collections.singleton(userDetails.getUsername()));
+        }
+        return userDetails;
+    }
+
+    @Override
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public User register(String firstName, String lastName, String username, String email)
             throws UsernameExistException, EmailExistException, UserNotFoundException {
-        validateUsernameAndEmail(StringUtils.EMPTY, username, email);
-        User user = new User();
-        user.setUserId(generateUserId());
+        // hashed before the transaction, so no connection is held for the deliberately slow hash
         String password = generatePassword();
-        user.setPassword(encodePassword(password));
-        user.setRawPassword(password);
-        user.setFirstName(firstName);
-        user.setLastName(lastName);
-        user.setUsername(username);
-        user.setEmail(email);
-        user.setJoinDate(new Date());
-        user.setActive(Boolean.TRUE);
-        user.setNotLocked(Boolean.TRUE);
-        user.setRoles(ROLE_USER.name());
-        user.setAuthorities(ROLE_USER.getAuthorities());
-        user.setProfileImageUrl(getTemporaryProfileImageUrl(username));
-        userRepository.save(user);
-        //emailService.sendNewPasswordEmail(firstName, password, email);
-        return user;
+        String encodedPassword = encodePassword(password);
+        User newUser = insertUser(() -> {
+            validateUsernameAndEmail(StringUtils.EMPTY, username, email);
+            User user = new User();
+            user.setUserId(generateUserId());
+            user.setPassword(encodedPassword);
+            user.setRawPassword(password);
+            user.setFirstName(firstName);
+            user.setLastName(lastName);
+            user.setUsername(username);
+            user.setEmail(email);
+            user.setJoinDate(new Date());
+            user.setActive(Boolean.TRUE);
+            user.setNotLocked(Boolean.TRUE);
+            user.setRoles(ROLE_USER);
+            user.setProfileImageUrl(getTemporaryProfileImageUrl(username));
+            saveUser(user);
+            userCache.evict(user);
+            return user;
+        });
+        emailService.sendNewPasswordEmail(firstName, password, email);
+        return newUser;
     }
 
     @Override
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public User addNewUser(String firstName, String lastName, String username, String email, String role,
                            boolean isNonLocked, boolean isActive, MultipartFile profileImage)
-            throws UserNotFoundException, UsernameExistException, EmailExistException, IOException {
-        validateUsernameAndEmail(StringUtils.EMPTY, username, email);
-        User user = new User();
-        String password = generatePassword();
-        user.setUserId(generateUserId());
-        user.setPassword(encodePassword(password));
-        user.setRawPassword(password);
-        user.setFirstName(firstName);
-        user.setLastName(lastName);
-        user.setUsername(username);
-        user.setEmail(email);
-        user.setJoinDate(new Date());
-        user.setActive(isActive);
-        user.setNotLocked(isNonLocked);
-        user.setRoles(getRoleEnumName(role).name());
-        user.setAuthorities(getRoleEnumName(role).getAuthorities());
-        user.setProfileImageUrl(getTemporaryProfileImageUrl(username));
-        userRepository.save(user);
-        saveProfileImage(user, profileImage);
-        return user;
+            throws UserNotFoundException, UsernameExistException, EmailExistException, IOException, NotAnImageFileException,
+            InvalidRequestException {
+        Role userRole = getRoleEnumName(role);
+        // the upload is written and validated before any database work, so no connection is held during disk I/O
+        Path stagedImage = profileImageService.stage(profileImage);
+        try {
+            String password = generatePassword();
+            String encodedPassword = encodePassword(password);
+            User newUser = insertUser(() -> {
+                validateUsernameAndEmail(StringUtils.EMPTY, username, email);
+                User user = new User();
+                user.setUserId(generateUserId());
+                user.setPassword(encodedPassword);
+                user.setRawPassword(password);
+                user.setFirstName(firstName);
+                user.setLastName(lastName);
+                user.setUsername(username);
+                user.setEmail(email);
+                user.setJoinDate(new Date());
+                user.setActive(isActive);
+                user.setNotLocked(isNonLocked);
+                user.setRoles(userRole);
+                user.setProfileImageUrl(getTemporaryProfileImageUrl(username));
+                saveUser(user);
+                userCache.evict(user);
+                return user;
+            });
+            publishProfileImage(newUser, stagedImage);
+            return newUser;
+        } finally {
+            profileImageService.discard(stagedImage);
+        }
     }
 
     @Override
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public User updateUser(String currentUsername, String newFirstName, String newLastName, String newUsername,
                            String newEmail, String role, boolean isNonLocked, boolean isActive, MultipartFile profileImage)
-            throws UserNotFoundException, UsernameExistException, EmailExistException, IOException {
-        User currentUser = validateUsernameAndEmail(currentUsername, newUsername, newEmail);
-        currentUser.setFirstName(newFirstName);
-        currentUser.setLastName(newLastName);
-        currentUser.setUsername(newUsername);
-        currentUser.setEmail(newEmail);
-        currentUser.setActive(isActive);
-        currentUser.setNotLocked(isNonLocked);
-        currentUser.setRoles(getRoleEnumName(role).name());
-        currentUser.setAuthorities(getRoleEnumName(role).getAuthorities());
-        userRepository.save(currentUser);
-        saveProfileImage(currentUser, profileImage);
+            throws UserNotFoundException, UsernameExistException, EmailExistException, IOException, NotAnImageFileException,
+            InvalidRequestException {
+        Role userRole = getRoleEnumName(role);
+        Path stagedImage = profileImageService.stage(profileImage);
+        try {
+            User updatedUser = inTransaction(() -> {
+                User currentUser = validateUsernameAndEmail(currentUsername, newUsername, newEmail);
+                currentUser.setFirstName(newFirstName);
+                currentUser.setLastName(newLastName);
+                currentUser.setUsername(newUsername);
+                currentUser.setEmail(newEmail);
+                currentUser.setActive(isActive);
+                currentUser.setNotLocked(isNonLocked);
+                currentUser.setRoles(userRole);
+                saveUser(currentUser);
+                userCache.evict(currentUser);
+                return currentUser;
+            });
+            publishProfileImage(updatedUser, stagedImage);
+            return updatedUser;
+        } finally {
+            profileImageService.discard(stagedImage);
+        }
+    }
+
+    @Override
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
+    @Transactional(rollbackOn = {UsernameExistException.class, EmailExistException.class})
+    public User patchUser(String currentUsername, UserPatch patch)
+            throws UserNotFoundException, UsernameExistException, EmailExistException, InvalidRequestException {
+        // a missing version must not default to 0, which every row had before the column was added
+        if (patch.getVersion() == null) {
+            throw new InvalidRequestException(VERSION_REQUIRED);
+        }
+        Role role = patch.getRole() == null ? null : getRoleEnumName(patch.getRole());
+        User currentUser = validateUsernameAndEmail(currentUsername, patch.getUsername(), patch.getEmail());
+        if (currentUser.getVersion() != patch.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(User.class, currentUser.getId());
+        }
+        // the entity is managed, dirty checking writes only the columns that actually changed
+        if (patch.getUsername() != null) {
+            currentUser.setUsername(patch.getUsername());
+        }
+        if (patch.getFirstName() != null) {
+            currentUser.setFirstName(patch.getFirstName());
+        }
+        if (patch.getLastName() != null) {
+            currentUser.setLastName(patch.getLastName());
+        }
+        if (patch.getEmail() != null) {
+            currentUser.setEmail(patch.getEmail());
+        }
+        if (role != null) {
+            currentUser.setRoles(role);
+        }
+        if (patch.getActive() != null) {
+            currentUser.setActive(patch.getActive());
+        }
+        if (patch.getNotLocked() != null) {
+            currentUser.setNotLocked(patch.getNotLocked());
+        }
+        flushUser(userRepository::flush);
+        userCache.evict(currentUser);
         return currentUser;
     }
 
     @Override
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
     public void deleteUser(long id) {
         userRepository.deleteById(id);
+        userCache.evictById(id);
     }
 
     @Override
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public void resetPassword(String email) throws EmailNotFoundException {
-        User user = userRepository.findUserByEmail(email);
-        if (user == null) {
+        // an unknown email is turned away before it can take one of the bounded hashing slots
+        if (userRepository.findUserByEmail(email) == null) {
             throw new EmailNotFoundException("No user found for email: " + email);
         }
         String password = generatePassword();
-        user.setPassword(encodePassword(password));
-        user.setRawPassword(password);
-        userRepository.save(user);
-        //emailService.sendNewPasswordEmail(user.getFirstName(), password, email);
+        String encodedPassword = encodePassword(password);
+        User user = transactionTemplate.execute(status -> {
+            User existingUser = userRepository.findUserByEmail(email);
+            if (existingUser != null) {
+                existingUser.setPassword(encodedPassword);
+                existingUser.setRawPassword(password);
+            }
+            return existingUser;
+        });
+        if (user == null) {
+            throw new EmailNotFoundException("No user found for email: " + email);
+        }
+        userCache.evict(user);
+        emailService.sendNewPasswordEmail(user.getFirstName(), password, email);
     }
 
     @Override
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public User updateProfileImage(String username, MultipartFile newProfileImage)
-            throws UserNotFoundException, UsernameExistException, EmailExistException, IOException {
-        User user = validateUsernameAndEmail(username, null, null);
-        saveProfileImage(user, newProfileImage);
-        return user;
+            throws UserNotFoundException, UsernameExistException, EmailExistException, IOException, NotAnImageFileException {
+        Path stagedImage = profileImageService.stage(newProfileImage);
+        try {
+            User user = getUserForUpdate(username);
+            publishProfileImage(user, stagedImage);
+            return user;
+        } finally {
+            profileImageService.discard(stagedImage);
+        }
+    }
+
+    @Override
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
+    public UserPage getUsers(Long cursor, Integer size, Sort.Direction direction) {
+        int pageSize = getPageSize(size);
+        // one extra row tells whether there is a next page without a count query
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+        List<UserSummary> users = direction == Sort.Direction.DESC
+                ? userRepository.findSummariesBefore(cursor == null ? Long.MAX_VALUE : cursor, pageable)
+                : userRepository.findSummariesAfter(cursor == null ? 0L : cursor, pageable);
+        return toPage(users, pageSize);
+    }
+
+    @Override
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
+    public UserPage getUsersByRole(String role, Long cursor, Integer size) throws InvalidRequestException {
+        int pageSize = getPageSize(size);
+        List<UserSummary> users = userRepository.findSummariesByRoleAfter(getRoleEnumName(role),
+                cursor == null ? 0L : cursor, PageRequest.of(0, pageSize + 1));
+        return toPage(users, pageSize);
     }
 
     @Override
-    public List<User> getUsers() {
-        return userRepository.findAll();
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
+    public void streamUsers(Consumer<UserSummary> consumer) {
+        // projections are not managed, so the persistence context does not grow while streaming
+        try (Stream<UserSummary> users = userRepository.streamAllSummaries()) {
+            users.forEach(consumer);
+        }
     }
 
     @Override
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
     public User findUserByUsername(String username) {
-        return userRepository.findUserByUsername(username);
+        return userCache.getByUsername(username, userRepository::findUserByUsername);
+    }
+
+    @Override
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
+    public UserSummary findUserSummaryByUsername(String username) {
+        return userRepository.findSummaryByUsername(username);
     }
 
     @Override
+    @Timed(value = USER_SERVICE_TIMER, histogram = true)
     public User findUserByEmail(String email) {
-        return userRepository.findUserByEmail(email);
+        return userCache.getByEmail(email, userRepository::findUserByEmail);
     }
 
     private User validateUsernameAndEmail(String currentUsername, String newUsername, String newEmail)
             throws UsernameExistException, EmailExistException, UserNotFoundException {
+        User currentUser = null;
         if (StringUtils.isNotBlank(currentUsername)) { // existing user modify information
-            User currentUser = findUserByUsername(currentUsername);
-            if (currentUser == null) {
-                throw new UserNotFoundException("No user found by username: " + currentUsername);
+            currentUser = getUserForUpdate(currentUsername);
+        }
+        Long currentId = currentUser == null ? null : currentUser.getId();
+        boolean usernameTaken = false;
+        boolean emailTaken = false;
+        // a single indexed lookup for both columns, the unique constraints settle any race that slips past it
+        for (Object[] owner : userRepository.findUsernameAndEmailOwners(newUsername, newEmail)) {
+            if (!owner[0].equals(currentId)) {
+                usernameTaken |= StringUtils.equalsIgnoreCase((String) owner[1], newUsername);
+                emailTaken |= StringUtils.equalsIgnoreCase((String) owner[2], newEmail);
+            }
+        }
+        if (usernameTaken) {
+            throw new UsernameExistException(USERNAME_ALREADY_EXISTS);
+        }
+        if (emailTaken) {
+            throw new EmailExistException(EMAIL_ALREADY_EXISTS);
+        }
+        return currentUser;
+    }
+
+    private User getUserForUpdate(String username) throws UserNotFoundException {
+        // the user about to be modified is read from the database, never from the shared cache
+        User user = userRepository.findUserByUsername(username);
+        if (user == null) {
+            throw new UserNotFoundException(NO_USER_FOUND_BY_USERNAME + username);
+        }
+        return user;
+    }
+
+    private User inTransaction(UserWrite write) throws UserNotFoundException, UsernameExistException, EmailExistException {
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return write.run();
+                } catch (UserNotFoundException | UsernameExistException | EmailExistException ex) {
+                    throw new UserWriteException(ex);
+                }
+            });
+        } catch (UserWriteException ex) {
+            if (ex.getCause() instanceof UserNotFoundException) {
+                throw (UserNotFoundException) ex.getCause();
             }
-            User userByNewUsername = findUserByUsername(newUsername);
-            if (userByNewUsername != null && !userByNewUsername.getId().equals(currentUser.getId())) {
-                throw new UsernameExistException("Username already taken");
+            if (ex.getCause() instanceof UsernameExistException) {
+                throw (UsernameExistException) ex.getCause();
             }
-            User userByNewEmail = findUserByEmail(newEmail);
-            if (userByNewEmail != null && !userByNewEmail.getId().equals(currentUser.getId())) {
-                throw new EmailExistException("Email already taken");
+            throw (EmailExistException) ex.getCause();
+        }
+    }
+
+    private User insertUser(UserWrite write) throws UserNotFoundException, UsernameExistException, EmailExistException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return inTransaction(write);
+            } catch (UserIdCollisionException ex) {
+                // another node generated the same id, which happens when two nodes share an id.generator.node
+                if (attempt == MAXIMUM_USER_ID_ATTEMPTS) {
+                    throw ex.getCause();
+                }
+                LOGGER.warn("Generated user id is already taken, retrying with a new one (attempt {})", attempt);
             }
-            return currentUser;
-        } else {
-            // new user registration
-            User userByUsername = findUserByUsername(newUsername);
-            if (userByUsername != null) {
-                throw new UsernameExistException("Username already taken");
+        }
+    }
+
+    private void publishProfileImage(User user, Path stagedImage) throws IOException {
+        if (stagedImage == null) {
+            return;
+        }
+        // runs after the row is committed, so a rejected write never replaces or orphans an image on disk,
+        // and the row only points at the image once it is in place
+        String fileName = profileImageService.publish(stagedImage, user.getUsername());
+        String profileImageUrl = getProfileImageUrl(user.getUsername(), fileName);
+        if (!profileImageUrl.equals(user.getProfileImageUrl())) {
+            userRepository.updateProfileImageUrl(user.getId(), profileImageUrl);
+            user.setProfileImageUrl(profileImageUrl);
+            userCache.evict(user);
+        }
+    }
+
+    private void saveUser(User user) throws UsernameExistException, EmailExistException {
+        flushUser(() -> userRepository.saveAndFlush(user));
+    }
+
+    private void flushUser(Runnable write) throws UsernameExistException, EmailExistException {
+        try {
+            write.run();
+        } catch (DataIntegrityViolationException ex) {
+            String violatedConstraint = getViolatedConstraint(ex);
+            if (StringUtils.containsIgnoreCase(violatedConstraint, USERNAME_UNIQUE_CONSTRAINT)) {
+                throw new UsernameExistException(USERNAME_ALREADY_EXISTS);
+            }
+            if (StringUtils.containsIgnoreCase(violatedConstraint, EMAIL_UNIQUE_CONSTRAINT)) {
+                throw new EmailExistException(EMAIL_ALREADY_EXISTS);
             }
-            User userByEmail = findUserByEmail(newEmail);
-            if (userByEmail != null) {
-                throw new EmailExistException("Email already taken");
+            if (StringUtils.containsIgnoreCase(violatedConstraint, USER_ID_UNIQUE_CONSTRAINT)) {
+                throw new UserIdCollisionException(ex);
             }
-            return null;
+            throw ex;
         }
     }
 
+    private String getViolatedConstraint(DataIntegrityViolationException ex) {
+        if (ex.getCause() instanceof ConstraintViolationException) {
+            String constraintName = ((ConstraintViolationException) ex.getCause()).getConstraintName();
+            if (constraintName != null) {
+                return constraintName;
+            }
+        }
+        return NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+    }
+
     private void validateLoginAttempt(User user) {
         if (user.isNotLocked()) {
             if (loginAttemptService.hasExceededMaxAttempts(user.getUsername())) {
+                userRepository.lockUser(user.getId());
+                userCache.evict(user);
                 user.setNotLocked(Boolean.FALSE);
-            } else {
-                user.setNotLocked(Boolean.TRUE);
             }
         } else {
             loginAttemptService.evictUserFromCache(user.getUsername());
@@ -224,7 +487,7 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     }
 
     private String generateUserId() {
-        return RandomStringUtils.randomNumeric(10);
+        return String.valueOf(idGenerator.nextId());
     }
 
     private String generatePassword() {
@@ -240,29 +503,54 @@ public class UserServiceImpl implements UserService, UserDetailsService {
                 .path(FileConstant.DEFAULT_USER_IMAGE_PATH + username).toUriString();
     }
 
-    private void saveProfileImage(User user, MultipartFile profileImage) throws IOException {
-        if (profileImage != null) {
-            Path userFolder = Paths.get(USER_FOLDER + user.getUsername()).toAbsolutePath().normalize();
-            if (!Files.exists(userFolder)) {
-                Files.createDirectories(userFolder);
-                LOGGER.info(DIRECTORY_CREATED, userFolder);
+    private String getProfileImageUrl(String username, String fileName) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path(USER_IMAGE_PATH + username + FORWARD_SLASH + fileName).toUriString();
+    }
+
+    private int getPageSize(Integer size) {
+        return size == null ? defaultPageSize : Math.max(1, Math.min(size, maximumPageSize));
+    }
+
+    private UserPage toPage(List<UserSummary> users, int pageSize) {
+        if (users.size() <= pageSize) {
+            return new UserPage(users, null);
+        }
+        users = users.subList(0, pageSize);
+        return new UserPage(users, users.get(pageSize - 1).getId());
+    }
+
+    private Role getRoleEnumName(String role) throws InvalidRequestException {
+        for (Role value : Role.values()) {
+            if (value.name().equalsIgnoreCase(role)) {
+                return value;
             }
-            Files.deleteIfExists(Paths.get(userFolder + user.getUsername() + DOT + JPG_EXTENSION));
-            Files.copy(profileImage.getInputStream(), userFolder.resolve(user.getUsername() + DOT + JPG_EXTENSION), REPLACE_EXISTING);
-            user.setProfileImageUrl(getProfileImageUrl(user.getUsername()));
-            userRepository.save(user);
-            LOGGER.info(FILE_SAVED_IN_FILE_SYSTEM, profileImage.getOriginalFilename());
         }
+        throw new InvalidRequestException(UNKNOWN_ROLE + role);
     }
 
-    private String getProfileImageUrl(String username) {
-        return ServletUriComponentsBuilder.fromCurrentContextPath()
-                .path(USER_IMAGE_PATH + username + FORWARD_SLASH + username + DOT + JPG_EXTENSION).toUriString();
+    @FunctionalInterface
+    private interface UserWrite {
+        User run() throws UserNotFoundException, UsernameExistException, EmailExistException;
     }
 
-    private Role getRoleEnumName(String role) {
-        return Role.valueOf(role.toUpperCase());
+    // carries the checked exceptions of a write through the transaction template, which rolls back on it
+    private static class UserWriteException extends RuntimeException {
+        UserWriteException(Exception cause) {
+            super(cause);
+        }
     }
 
+    // raised inside the transaction so the whole insert is rolled back and retried with a new user id
+    private static class UserIdCollisionException extends RuntimeException {
+        UserIdCollisionException(DataIntegrityViolationException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized DataIntegrityViolationException getCause() {
+            return (DataIntegrityViolationException) super.getCause();
+        }
+    }
 
 }
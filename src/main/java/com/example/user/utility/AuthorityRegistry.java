@@ -0,0 +1,61 @@
+package com.example.user.utility;
+
+import com.example.user.enumeration.Role;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public final class AuthorityRegistry {
+
+    // Claim sets are signed by us, this only guards against an unexpected explosion of distinct sets
+    private static final int MAXIMUM_INTERNED_CLAIM_SETS = 256;
+
+    private static final ConcurrentMap<String, GrantedAuthority> AUTHORITIES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<List<String>, List<GrantedAuthority>> CLAIM_AUTHORITIES = new ConcurrentHashMap<>();
+    private static final Map<Role, List<GrantedAuthority>> ROLE_AUTHORITIES = new EnumMap<>(Role.class);
+
+    static {
+        for (Role role : Role.values()) {
+            ROLE_AUTHORITIES.put(role, forClaims(role.getAuthorities()));
+        }
+    }
+
+    private AuthorityRegistry() {
+    }
+
+    public static List<GrantedAuthority> forRole(Role role) {
+        return role == null ? List.of() : ROLE_AUTHORITIES.get(role);
+    }
+
+    public static List<GrantedAuthority> forClaims(String... claims) {
+        if (claims == null || claims.length == 0) {
+            return List.of();
+        }
+        List<GrantedAuthority> authorities = CLAIM_AUTHORITIES.get(Arrays.asList(claims));
+        if (authorities != null) {
+            return authorities;
+        }
+        authorities = build(claims);
+        if (CLAIM_AUTHORITIES.size() < MAXIMUM_INTERNED_CLAIM_SETS) {
+            List<GrantedAuthority> existing = CLAIM_AUTHORITIES.putIfAbsent(List.of(claims), authorities);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return authorities;
+    }
+
+    private static List<GrantedAuthority> build(String[] claims) {
+        GrantedAuthority[] authorities = new GrantedAuthority[claims.length];
+        for (int i = 0; i < claims.length; i++) {
+            authorities[i] = AUTHORITIES.computeIfAbsent(claims[i], SimpleGrantedAuthority::new);
+        }
+        return List.of(authorities);
+    }
+}
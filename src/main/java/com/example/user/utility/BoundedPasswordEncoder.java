@@ -0,0 +1,138 @@
+package com.example.user.utility;
+
+import com.example.user.exception.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final String HASHING_UNAVAILABLE = "Too many password operations in progress. Please try again later";
+
+    private final BCryptPasswordEncoder delegate;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+    private final long retryAfterSeconds;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+
+    public BoundedPasswordEncoder(@Value("${password.hashing.strength:10}") int strength,
+                                  @Value("${password.hashing.threads:0}") int threads,
+                                  @Value("${password.hashing.queue-capacity:100}") int queueCapacity,
+                                  @Value("${password.hashing.retry-after:1s}") Duration retryAfter,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.strength = strength;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.retryAfterSeconds = Math.max(1, retryAfter.getSeconds());
+        this.encodeTimer = Timer.builder("password.hashing").tag("operation", "encode").publishPercentileHistogram().register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hashing").tag("operation", "matches").publishPercentileHistogram().register(meterRegistry);
+        Gauge.builder("password.hashing.queue", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return await(submit(() -> encodeTimer.record(() -> delegate.encode(rawPassword))));
+    }
+
+    // returns null instead of failing when the hashing queue is full, for work that can be skipped
+    public String tryEncode(CharSequence rawPassword) {
+        try {
+            return encode(rawPassword);
+        } catch (PasswordHashingUnavailableException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return await(submit(() -> matchesTimer.record(() -> delegate.matches(rawPassword, encodedPassword))));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // rehashing on login is opportunistic, it is skipped while hashing requests are queueing up
+        if (encodedPassword == null || encodedPassword.length() < 7 || !executor.getQueue().isEmpty()) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6)) != strength;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        List<Future<String>> hashes = new ArrayList<>(rawPasswords.size());
+        for (CharSequence rawPassword : rawPasswords) {
+            Callable<String> task = () -> encodeTimer.record(() -> delegate.encode(rawPassword));
+            try {
+                hashes.add(executor.submit(task));
+            } catch (RejectedExecutionException ex) {
+                // bulk callers wait for their own results instead of failing the whole batch
+                FutureTask<String> inline = new FutureTask<>(task);
+                inline.run();
+                hashes.add(inline);
+            }
+        }
+        List<String> encodedPasswords = new ArrayList<>(hashes.size());
+        for (Future<String> hash : hashes) {
+            encodedPasswords.add(await(hash));
+        }
+        return encodedPasswords;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException ex) {
+            throw new PasswordHashingUnavailableException(HASHING_UNAVAILABLE, retryAfterSeconds);
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.user.utility;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.user.constant.MetricConstant.IMAGE_WRITE_TIMER;
+import static com.example.user.constant.MetricConstant.OUTCOME_TAG;
+
+@Component
+public class FileResponseWriter {
+
+    // Tomcat request attributes that hand the file to the connector for a kernel sendfile() after the servlet returns
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final String BYTES = "bytes";
+    private static final String NOT_FOUND = "not_found";
+    private static final String NOT_MODIFIED = "not_modified";
+    private static final String RANGE_NOT_SATISFIABLE = "range_not_satisfiable";
+    private static final String HEADERS_ONLY = "headers_only";
+    private static final String SENDFILE = "sendfile";
+    private static final String TRANSFER = "transfer";
+    private static final String FAILED = "failed";
+
+    private final String cacheControl;
+    // one timer per outcome, registered up front so writing a file never goes through the registry
+    private final Map<String, Timer> timers = new HashMap<>();
+
+    public FileResponseWriter(@Value("${image.cache-max-age:1h}") Duration cacheMaxAge, MeterRegistry meterRegistry) {
+        this.cacheControl = CacheControl.maxAge(cacheMaxAge).cachePublic().getHeaderValue();
+        for (String outcome : new String[]{NOT_FOUND, NOT_MODIFIED, RANGE_NOT_SATISFIABLE, HEADERS_ONLY, SENDFILE, TRANSFER, FAILED}) {
+            timers.put(outcome, Timer.builder(IMAGE_WRITE_TIMER).tag(OUTCOME_TAG, outcome).publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    public void write(Path file, MediaType mediaType, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        long start = System.nanoTime();
+        String outcome = FAILED;
+        try {
+            outcome = writeFile(file, mediaType, request, response);
+        } finally {
+            timers.get(outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String writeFile(Path file, MediaType mediaType, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return NOT_FOUND;
+        }
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String eTag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, lastModified)) {
+            return NOT_MODIFIED;
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES);
+        response.setContentType(mediaType.toString());
+
+        long start = 0;
+        long end = length - 1;
+        HttpRange range = getRange(request, eTag);
+        if (range != null && length > 0) {
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException ex) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES + " */" + length);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return RANGE_NOT_SATISFIABLE;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES + " " + start + "-" + end + "/" + length);
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (count <= 0 || !HttpMethod.GET.matches(request.getMethod())) {
+            return HEADERS_ONLY;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return SENDFILE;
+        }
+        transfer(file, start, count, response);
+        return TRANSFER;
+    }
+
+    private HttpRange getRange(HttpServletRequest request, String eTag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+        // a stale If-Range validator means the client gets the whole, current file
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(eTag)) {
+            return null;
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        // multipart/byteranges is not worth supporting for images, RFC 7233 allows answering with the full body
+        return ranges.size() == 1 ? ranges.get(0) : null;
+    }
+
+    private void transfer(Path file, long start, long count, HttpServletResponse response) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+}
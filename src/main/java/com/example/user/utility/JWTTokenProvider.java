@@ -4,13 +4,14 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.example.user.domain.UserPrincipal;
+import com.example.user.domain.VerifiedToken;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 
@@ -18,28 +19,42 @@ import javax.servlet.http.HttpServletRequest;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static com.example.user.constant.SecurityConstant.*;
-import static java.util.Arrays.stream;
 
 @Component
 public class JWTTokenProvider {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    // Both are immutable and thread-safe, so they are built once instead of per verification
+    private final Algorithm algorithm;
+    private final JWTVerifier verifier;
+
+    public JWTTokenProvider(@Value("${jwt.secret}") String secret) {
+        this.algorithm = Algorithm.HMAC512(secret);
+        this.verifier = JWT.require(algorithm).withIssuer(GET_ARRAYS_LLC).build();
+    }
 
     public String generateJwtToken(UserPrincipal userPrincipal) {
         String[] claims = getClaimsFromUser(userPrincipal);
         return JWT.create().withIssuer(GET_ARRAYS_LLC).withAudience(GET_ARRAYS_ADMINISTRATION)
                 .withIssuedAt(new Date()).withSubject(userPrincipal.getUsername())
                 .withArrayClaim(AUTHORITIES, claims).withExpiresAt(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .sign(Algorithm.HMAC512(secret.getBytes()));
+                .sign(algorithm);
+    }
+
+    public VerifiedToken verifyToken(String token) {
+        DecodedJWT decodedJWT = verifier.verify(token);
+        String subject = decodedJWT.getSubject();
+        Date expiresAt = decodedJWT.getExpiresAt();
+        if (StringUtils.isEmpty(subject) || expiresAt == null) {
+            throw new JWTVerificationException(TOKEN_CANNOT_BE_VERIFIED);
+        }
+        String[] claims = decodedJWT.getClaim(AUTHORITIES).asArray(String.class);
+        return new VerifiedToken(subject, expiresAt.getTime(), AuthorityRegistry.forClaims(claims));
     }
 
     public List<GrantedAuthority> getAuthorities(String token) {
-        String[] claims = getClaimsFromToken(token);
-        return stream(claims).map(SimpleGrantedAuthority::new).collect(Collectors.toList());
+        return verifyToken(token).getAuthorities();
     }
 
     public Authentication getAuthentication(String username, List<GrantedAuthority> authorities, HttpServletRequest request) {
@@ -50,34 +65,11 @@ public class JWTTokenProvider {
     }
 
     public boolean isTokenValid(String username, String token) {
-        JWTVerifier verifier = getJWTVerifier();
-        return StringUtils.isNotEmpty(username) && !isTokenExpired(verifier, token);
+        return StringUtils.isNotEmpty(username) && !verifyToken(token).isExpired();
     }
 
     public String getSubject(String token) {
-        JWTVerifier verifier = getJWTVerifier();
-        return verifier.verify(token).getSubject();
-    }
-
-    private boolean isTokenExpired(JWTVerifier verifier, String token) {
-        Date expiration = verifier.verify(token).getExpiresAt();
-        return expiration.before(new Date());
-    }
-
-    private String[] getClaimsFromToken(String token) {
-        JWTVerifier verifier = getJWTVerifier();
-        return verifier.verify(token).getClaim(AUTHORITIES).asArray(String.class);
-    }
-
-    private JWTVerifier getJWTVerifier() {
-        JWTVerifier verifier;
-        try {
-            Algorithm algorithm = Algorithm.HMAC512(secret);
-            verifier = JWT.require(algorithm).withIssuer(GET_ARRAYS_LLC).build();
-        } catch (JWTVerificationException ex) {
-            throw new JWTVerificationException(TOKEN_CANNOT_BE_VERIFIED);
-        }
-        return verifier;
+        return verifyToken(token).getSubject();
     }
 
     private String[] getClaimsFromUser(UserPrincipal userPrincipal) {
@@ -0,0 +1,34 @@
+package com.example.user.utility;
+
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+public class RehashingAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final UserDetailsPasswordService userDetailsPasswordService;
+
+    public RehashingAuthenticationProvider(UserDetailsService userDetailsService, BoundedPasswordEncoder passwordEncoder,
+                                           UserDetailsPasswordService userDetailsPasswordService) {
+        // the password service is kept from the parent, whose rehash fails the login when hashing is saturated
+        setUserDetailsService(userDetailsService);
+        setPasswordEncoder(passwordEncoder);
+        this.passwordEncoder = passwordEncoder;
+        this.userDetailsPasswordService = userDetailsPasswordService;
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication, UserDetails user) {
+        // the credentials are already verified, a rehash that cannot run now is left for a later login
+        if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+            String newPassword = passwordEncoder.tryEncode(authentication.getCredentials().toString());
+            if (newPassword != null) {
+                user = userDetailsPasswordService.updatePassword(user, newPassword);
+            }
+        }
+        return super.createSuccessAuthentication(principal, authentication, user);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.user.utility;
+
+import com.example.user.config.EmailProperties;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class SmtpConnectionPool implements AutoCloseable {
+
+    private final Session session;
+    private final EmailProperties emailProperties;
+    private final BlockingQueue<Transport> idleConnections;
+
+    public SmtpConnectionPool(Session session, EmailProperties emailProperties) {
+        this.session = session;
+        this.emailProperties = emailProperties;
+        this.idleConnections = new ArrayBlockingQueue<>(emailProperties.getConnectionPoolSize());
+    }
+
+    public Transport borrow() throws MessagingException {
+        Transport transport;
+        while ((transport = idleConnections.poll()) != null) {
+            // isConnected() sends a NOOP, so connections dropped by the server are discarded here
+            if (transport.isConnected()) {
+                return transport;
+            }
+            closeQuietly(transport);
+        }
+        transport = session.getTransport(emailProperties.getProtocol());
+        transport.connect(emailProperties.getHost(), emailProperties.getPort(),
+                emailProperties.getUsername(), emailProperties.getPassword());
+        return transport;
+    }
+
+    public void release(Transport transport) {
+        if (!idleConnections.offer(transport)) {
+            closeQuietly(transport);
+        }
+    }
+
+    public void invalidate(Transport transport) {
+        closeQuietly(transport);
+    }
+
+    @Override
+    public void close() {
+        Transport transport;
+        while ((transport = idleConnections.poll()) != null) {
+            closeQuietly(transport);
+        }
+    }
+
+    private void closeQuietly(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException ignored) {
+            // the connection is discarded either way
+        }
+    }
+}
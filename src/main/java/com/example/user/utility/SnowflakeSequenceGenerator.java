@@ -0,0 +1,42 @@
+package com.example.user.utility;
+
+import com.example.user.service.impl.SnowflakeIdGenerator;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Properties;
+
+public class SnowflakeSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String MODE_SETTING = "hibernate.id.user.mode";
+    public static final String NODE_SETTING = "hibernate.id.user.node";
+    public static final String SNOWFLAKE_MODE = "snowflake";
+    public static final String POOLED_MODE = "pooled";
+
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        // the sequence is always declared, so switching back to pooled mode finds it in place
+        super.configure(type, params, serviceRegistry);
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        if (SNOWFLAKE_MODE.equalsIgnoreCase(String.valueOf(settings.get(MODE_SETTING)))) {
+            Object node = settings.get(NODE_SETTING);
+            snowflakeIdGenerator = new SnowflakeIdGenerator(SnowflakeIdGenerator.resolveNodeId(node == null ? null : node.toString()));
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        if (snowflakeIdGenerator != null) {
+            return snowflakeIdGenerator.nextId();
+        }
+        return super.generate(session, object);
+    }
+}
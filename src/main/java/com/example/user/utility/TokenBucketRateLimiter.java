@@ -0,0 +1,48 @@
+package com.example.user.utility;
+
+import com.example.user.config.RateLimitProperties;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class TokenBucketRateLimiter {
+
+    private final ConcurrentMap<String, AtomicLong> buckets;
+
+    public TokenBucketRateLimiter(RateLimitProperties rateLimitProperties) {
+        Cache<String, AtomicLong> cache = CacheBuilder.newBuilder()
+                .expireAfterAccess(rateLimitProperties.getIdleTimeout())
+                .maximumSize(rateLimitProperties.getMaximumBuckets())
+                .build();
+        this.buckets = cache.asMap();
+    }
+
+    // returns 0 when a token was taken, otherwise the nanoseconds until one is available
+    public long tryAcquire(String key, int capacity, Duration period) {
+        long periodNanos = period.toNanos();
+        long emissionInterval = periodNanos / capacity;
+        AtomicLong theoreticalArrivalTime = buckets.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE));
+        // GCRA: a bucket is a single timestamp, so acquiring a token is one CAS
+        while (true) {
+            long now = System.nanoTime();
+            long current = theoreticalArrivalTime.get();
+            long next = (current == Long.MIN_VALUE || current - now < 0 ? now : current) + emissionInterval;
+            long wait = next - now - periodNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrivalTime.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public long size() {
+        return buckets.size();
+    }
+}
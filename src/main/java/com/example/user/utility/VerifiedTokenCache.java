@@ -0,0 +1,90 @@
+package com.example.user.utility;
+
+import com.example.user.domain.VerifiedToken;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class VerifiedTokenCache {
+    private static final String CACHE_NAME = "jwt";
+
+    private final Cache<HashCode, VerifiedToken> cache;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public VerifiedTokenCache(@Value("${jwt.cache.maximum-size:10000}") long maximumSize,
+                              @Value("${jwt.cache.expire-after-write:10m}") Duration expireAfterWrite,
+                              MeterRegistry meterRegistry) {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .<HashCode, VerifiedToken>removalListener(notification -> {
+                    if (notification.wasEvicted()) {
+                        evictionCount.increment();
+                    }
+                })
+                .build();
+        FunctionCounter.builder("cache.gets", hitCount, LongAdder::sum).tags("cache", CACHE_NAME, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", missCount, LongAdder::sum).tags("cache", CACHE_NAME, "result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", evictionCount, LongAdder::sum).tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", cache, Cache::size).tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    public VerifiedToken get(String token) {
+        HashCode key = digest(token);
+        VerifiedToken verifiedToken = cache.getIfPresent(key);
+        if (verifiedToken == null) {
+            missCount.increment();
+            return null;
+        }
+        // expireAfterWrite only bounds the entry age, the token's own exp claim must win
+        if (verifiedToken.isExpired()) {
+            cache.invalidate(key);
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return verifiedToken;
+    }
+
+    public void put(String token, VerifiedToken verifiedToken) {
+        if (!verifiedToken.isExpired()) {
+            cache.put(digest(token), verifiedToken);
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private HashCode digest(String token) {
+        return Hashing.sha256().hashString(token, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.user.controller;
+
+import com.example.user.domain.User;
+import com.example.user.repository.UserRepository;
+import com.example.user.service.LoginActivityRecorder;
+import com.example.user.service.UserService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+
+import static com.example.user.constant.UserConstant.EMAIL_ALREADY_EXISTS;
+import static com.example.user.constant.UserConstant.INVALID_SORT_DIRECTION;
+import static com.example.user.constant.UserConstant.UNKNOWN_ROLE;
+import static com.example.user.constant.UserConstant.USERNAME_ALREADY_EXISTS;
+import static com.example.user.constant.UserConstant.VERSION_REQUIRED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "image.storage.folder=target/test-images/${random.uuid}",
+        "avatar.cache.folder=target/test-avatars"})
+@AutoConfigureMockMvc
+@ActiveProfiles("embedded")
+class UserControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @SpyBean
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private LoginActivityRecorder loginActivityRecorder;
+
+    @Test
+    void servesCallablesOnTheContainerThreadInInlineMode() throws Exception {
+        register("inline.user", "inline.user@example.com")
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("inline.user"));
+    }
+
+    @Test
+    @WithMockUser(authorities = "user:update")
+    void patchRejectsAStaleVersion() throws Exception {
+        register("stale.patch", "stale.patch@example.com");
+        long version = userRepository.findUserByUsername("stale.patch").getVersion();
+        patch("stale.patch", "{\"version\":" + version + ",\"firstName\":\"First\"}").andExpect(status().isOk());
+
+        patch("stale.patch", "{\"version\":" + version + ",\"firstName\":\"Second\"}")
+                .andExpect(status().isConflict());
+        assertThat(userRepository.findUserByUsername("stale.patch").getFirstName()).isEqualTo("First");
+    }
+
+    @Test
+    @WithMockUser(authorities = "user:update")
+    void patchRejectsAVersionReadBeforeALock() throws Exception {
+        register("locked.patch", "locked.patch@example.com");
+        User user = userRepository.findUserByUsername("locked.patch");
+        transactionTemplate.executeWithoutResult(status -> userRepository.lockUser(user.getId()));
+
+        patch("locked.patch", "{\"version\":" + user.getVersion() + ",\"notLocked\":true}")
+                .andExpect(status().isConflict());
+        assertThat(userRepository.findUserByUsername("locked.patch").isNotLocked()).isFalse();
+    }
+
+    @Test
+    @WithMockUser(authorities = "user:update")
+    void patchRequiresTheVersion() throws Exception {
+        register("unversioned.patch", "unversioned.patch@example.com");
+
+        patch("unversioned.patch", "{\"firstName\":\"Blind\"}")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(VERSION_REQUIRED));
+        assertThat(userRepository.findUserByUsername("unversioned.patch").getFirstName()).isEqualTo("Test");
+    }
+
+    @Test
+    @WithMockUser(authorities = "user:update")
+    void patchMapsAUsernameRaceToBadRequest() throws Exception {
+        register("taken.patch", "taken.patch@example.com");
+        register("racing.patch", "racing.patch@example.com");
+        long version = userRepository.findUserByUsername("racing.patch").getVersion();
+        // the collision check misses the other user, as when both commit at the same time
+        doReturn(Collections.emptyList()).when(userRepository).findUsernameAndEmailOwners(any(), any());
+
+        patch("racing.patch", "{\"version\":" + version + ",\"username\":\"taken.patch\"}")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(USERNAME_ALREADY_EXISTS));
+    }
+
+    @Test
+    void rejectsADuplicateUsernameOrEmailWithOneLookup() throws Exception {
+        register("first.owner", "first.owner@example.com");
+        clearInvocations(userRepository);
+
+        register("first.owner", "other.owner@example.com")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(USERNAME_ALREADY_EXISTS));
+        register("other.owner", "first.owner@example.com")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(EMAIL_ALREADY_EXISTS));
+        verify(userRepository, atLeastOnce()).findUsernameAndEmailOwners(any(), any());
+        verify(userRepository, never()).findUserByUsername(any());
+        verify(userRepository, never()).findUserByEmail(any());
+    }
+
+    @Test
+    void mapsTheUniqueConstraintsToBadRequest() throws Exception {
+        register("second.owner", "second.owner@example.com");
+        // the lookup misses the other user, so the insert reaches the database constraints
+        doReturn(Collections.emptyList()).when(userRepository).findUsernameAndEmailOwners(any(), any());
+
+        register("second.owner", "another.owner@example.com")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(USERNAME_ALREADY_EXISTS));
+        register("another.owner", "second.owner@example.com")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(EMAIL_ALREADY_EXISTS));
+        assertThat(userRepository.findUserByUsername("another.owner")).isNull();
+    }
+
+    @Test
+    @WithMockUser(authorities = "user:read")
+    void listsUsersByRole() throws Exception {
+        register("role.listed", "role.listed@example.com");
+
+        mockMvc.perform(get("/user/list/role/role_user").param("size", "500"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[*].username", hasItem("role.listed")));
+        mockMvc.perform(get("/user/list/role/ROLE_NOBODY"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(UNKNOWN_ROLE + "ROLE_NOBODY"));
+    }
+
+    @Test
+    @WithMockUser(authorities = "user:read")
+    void rejectsAnUnknownSortDirection() throws Exception {
+        mockMvc.perform(get("/user/list/page").param("sort", "sideways"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(INVALID_SORT_DIRECTION + "sideways"));
+    }
+
+    @Test
+    void answersALoginWithItsOwnLoginDate() throws Exception {
+        register("login.dates", "login.dates@example.com");
+        transactionTemplate.executeWithoutResult(status ->
+                userRepository.updatePassword("login.dates", passwordEncoder.encode("secret")));
+        User cachedUser = userService.findUserByUsername("login.dates");
+
+        String firstLogin = JsonPath.read(login("login.dates", "secret")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastLoginDate").isNotEmpty())
+                .andReturn().getResponse().getContentAsString(), "$.lastLoginDate").toString();
+
+        login("login.dates", "secret")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastLoginDateDisplay").value(firstLogin));
+        // the dates are written behind, the shared cached user is never stamped with them
+        assertThat(cachedUser.getLastLoginDate()).isNull();
+    }
+
+    @Test
+    void showsTheFlushedLoginAsThePreviousOne() throws Exception {
+        register("flushed.login", "flushed.login@example.com");
+        transactionTemplate.executeWithoutResult(status ->
+                userRepository.updatePassword("flushed.login", passwordEncoder.encode("secret")));
+        String firstLogin = lastLoginDate(login("flushed.login", "secret").andExpect(status().isOk()));
+        loginActivityRecorder.flush();
+
+        String secondLogin = lastLoginDate(login("flushed.login", "secret")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastLoginDateDisplay").value(firstLogin)));
+        loginActivityRecorder.flush();
+
+        login("flushed.login", "secret")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastLoginDateDisplay").value(secondLogin));
+    }
+
+    @Test
+    @WithMockUser(authorities = "user:read")
+    void redirectsTheFullListToTheFirstPage() throws Exception {
+        mockMvc.perform(get("/user/list"))
+                .andExpect(status().isPermanentRedirect())
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/user/list/page"));
+    }
+
+    @Test
+    void servesNoAvatarForAnUnknownUser() throws Exception {
+        mockMvc.perform(get("/user/image/profile/nobody.here")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void keepsMetricsFromAnonymousCallers() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(authorities = "metrics:read")
+    void servesMetricsToTheMetricsAuthority() throws Exception {
+        mockMvc.perform(get("/actuator/metrics")).andExpect(status().isOk());
+    }
+
+    private static String lastLoginDate(ResultActions login) throws Exception {
+        return JsonPath.read(login.andReturn().getResponse().getContentAsString(), "$.lastLoginDate").toString();
+    }
+
+    private ResultActions patch(String username, String body) throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.patch("/user/update/" + username)
+                .contentType(MediaType.APPLICATION_JSON).content(body));
+    }
+
+    private ResultActions login(String username, String password) throws Exception {
+        return mockMvc.perform(post("/user/login").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"));
+    }
+
+    private ResultActions register(String username, String email) throws Exception {
+        return mockMvc.perform(post("/user/register").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\":\"Test\",\"lastName\":\"User\",\"username\":\"" + username + "\",\"email\":\"" + email + "\"}"));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.user.filter;
+
+import com.example.user.config.RateLimitProperties;
+import com.example.user.utility.TokenBucketRateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTests {
+
+    private RateLimitFilter rateLimitFilter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.Rule rule = new RateLimitProperties.Rule();
+        rule.setPath("/user/login");
+        rule.setMethod("POST");
+        rule.setPeriod(Duration.ofMinutes(1));
+        rule.setIpCapacity(5);
+        rule.setAccountCapacity(2);
+        rule.setAccountField("username");
+        RateLimitProperties rateLimitProperties = new RateLimitProperties();
+        rateLimitProperties.setRules(List.of(rule));
+        rateLimitFilter = new RateLimitFilter();
+        ReflectionTestUtils.setField(rateLimitFilter, "rateLimitProperties", rateLimitProperties);
+        ReflectionTestUtils.setField(rateLimitFilter, "rateLimiter", new TokenBucketRateLimiter(rateLimitProperties));
+        ReflectionTestUtils.setField(rateLimitFilter, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void limitsPerAccountAndKeepsTheBodyReadable() throws Exception {
+        assertThat(login("john", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(login("john", "10.0.0.2").getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse limited = login("john", "10.0.0.3");
+        assertThat(limited.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(limited.getHeader(HttpHeaders.RETRY_AFTER))).isBetween(1L, 60L);
+        assertThat(login("jane", "10.0.0.3").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void limitsPerIp() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertThat(login("user" + i, "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+        assertThat(login("other", "10.0.0.1").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void limitsChunkedRequestsPerAccount() throws Exception {
+        assertThat(login(chunked("john", "secret", "10.0.0.1")).getStatus()).isEqualTo(200);
+        assertThat(login(chunked("john", "secret", "10.0.0.2")).getStatus()).isEqualTo(200);
+        assertThat(login(chunked("john", "secret", "10.0.0.3")).getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void rejectsBodiesTooLargeToReadTheAccountFrom() throws Exception {
+        String padding = "x".repeat(new RateLimitProperties().getMaximumBodySize());
+        assertThat(login(chunked("john", padding, "10.0.0.1")).getStatus()).isEqualTo(413);
+        assertThat(login(request("john", padding, "10.0.0.1")).getStatus()).isEqualTo(413);
+    }
+
+    private MockHttpServletResponse login(String username, String ipAddress) throws Exception {
+        return login(request(username, "secret", ipAddress));
+    }
+
+    private MockHttpServletRequest request(String username, String password, String ipAddress) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/user/login");
+        fill(request, username, password, ipAddress);
+        return request;
+    }
+
+    private MockHttpServletRequest chunked(String username, String password, String ipAddress) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/user/login") {
+            @Override
+            public int getContentLength() {
+                return -1;
+            }
+
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        request.addHeader(HttpHeaders.TRANSFER_ENCODING, "chunked");
+        fill(request, username, password, ipAddress);
+        return request;
+    }
+
+    private void fill(MockHttpServletRequest request, String username, String password, String ipAddress) {
+        request.setServletPath("/user/login");
+        request.setRemoteAddr(ipAddress);
+        request.setContentType("application/json");
+        request.setContent(("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private MockHttpServletResponse login(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain filterChain = new MockFilterChain();
+        rateLimitFilter.doFilter(request, response, filterChain);
+        if (filterChain.getRequest() != null) {
+            String body = new String(filterChain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertThat(body).isEqualTo(new String(request.getContentAsByteArray(), StandardCharsets.UTF_8));
+        }
+        return response;
+    }
+}
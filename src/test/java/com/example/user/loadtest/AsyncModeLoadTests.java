@@ -0,0 +1,142 @@
+package com.example.user.loadtest;
+
+import com.example.user.UserManagementServiceApplication;
+import com.example.user.domain.User;
+import com.example.user.enumeration.Role;
+import com.example.user.repository.UserRepository;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class AsyncModeLoadTests {
+
+    private static final int SLOW_REQUESTS = 200;
+    private static final int PROBE_REQUESTS = 50;
+    private static final int UPSTREAM_DELAY_MILLIS = 300;
+
+    @TempDir
+    Path avatarFolder;
+
+    private HttpServer avatarUpstream;
+    private final HttpClient httpClient = HttpClient.newBuilder().executor(Executors.newCachedThreadPool()).build();
+
+    @BeforeEach
+    void startAvatarUpstream() throws Exception {
+        avatarUpstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        avatarUpstream.setExecutor(Executors.newCachedThreadPool());
+        avatarUpstream.createContext("/", exchange -> {
+            try {
+                Thread.sleep(UPSTREAM_DELAY_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] image = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+            exchange.sendResponseHeaders(200, image.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(image);
+            }
+        });
+        avatarUpstream.start();
+    }
+
+    @AfterEach
+    void stopAvatarUpstream() {
+        avatarUpstream.stop(0);
+    }
+
+    @Test
+    void comparesInlineAndAsyncExecution() throws Exception {
+        String inline = run("inline");
+        String async = run(Runtime.version().feature() >= 21 ? "virtual" : "bounded");
+        String report = inline + System.lineSeparator() + async + System.lineSeparator();
+        Files.createDirectories(Paths.get("target"));
+        Files.writeString(Paths.get("target", "async-mode-load-test.txt"), report);
+    }
+
+    private String run(String mode) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(UserManagementServiceApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--server.tomcat.threads.max=10",
+                        "--web.async.mode=" + mode,
+                        "--avatar.base-url=http://localhost:" + avatarUpstream.getAddress().getPort() + "/",
+                        "--avatar.cache.folder=" + avatarFolder.resolve(mode),
+                        "--spring.profiles.active=embedded",
+                        "--spring.datasource.url=jdbc:h2:mem:" + mode + ";MODE=MySQL");
+        try {
+            // avatars are only served for existing users
+            seedUsers(context.getBean(UserRepository.class), mode);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            long start = System.nanoTime();
+            List<CompletableFuture<HttpResponse<byte[]>>> slowRequests = new ArrayList<>();
+            for (int i = 0; i < SLOW_REQUESTS; i++) {
+                slowRequests.add(httpClient.sendAsync(get(port, "/user/image/profile/user" + mode + i), HttpResponse.BodyHandlers.ofByteArray()));
+            }
+            List<Long> probeLatencies = new ArrayList<>();
+            for (int i = 0; i < PROBE_REQUESTS; i++) {
+                long probeStart = System.nanoTime();
+                httpClient.send(get(port, "/user/image/nobody/nobody.jpg"), HttpResponse.BodyHandlers.discarding());
+                probeLatencies.add((System.nanoTime() - probeStart) / 1_000_000);
+            }
+            CompletableFuture.allOf(slowRequests.toArray(new CompletableFuture[0])).join();
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            for (CompletableFuture<HttpResponse<byte[]>> slowRequest : slowRequests) {
+                assertThat(slowRequest.join().statusCode()).isEqualTo(200);
+            }
+            Collections.sort(probeLatencies);
+            return String.format("mode=%s avatarRequests=%d elapsedMs=%d throughput=%.1f/s probeP50Ms=%d probeP99Ms=%d",
+                    mode, SLOW_REQUESTS, elapsedMillis, SLOW_REQUESTS * 1000.0 / elapsedMillis,
+                    probeLatencies.get(probeLatencies.size() / 2), probeLatencies.get(probeLatencies.size() * 99 / 100));
+        } finally {
+            context.close();
+        }
+    }
+
+    private void seedUsers(UserRepository userRepository, String mode) {
+        List<User> users = new ArrayList<>(SLOW_REQUESTS);
+        for (int i = 0; i < SLOW_REQUESTS; i++) {
+            User user = new User();
+            user.setUserId(String.valueOf(1_000_000_000L + i));
+            user.setFirstName("Async");
+            user.setLastName("User" + i);
+            user.setUsername("user" + mode + i);
+            user.setEmail("user" + mode + i + "@example.com");
+            user.setJoinDate(new Date());
+            user.setActive(true);
+            user.setNotLocked(true);
+            user.setRoles(Role.ROLE_USER);
+            users.add(user);
+        }
+        userRepository.saveAll(users);
+    }
+
+    private HttpRequest get(int port, String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.user.loadtest;
+
+import com.example.user.domain.User;
+import com.example.user.enumeration.Role;
+import com.example.user.repository.UserRepository;
+import com.example.user.service.ImageStorage;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.example.user.constant.SecurityConstant.JWT_TOKEN_HEADER;
+import static com.example.user.constant.SecurityConstant.TOKEN_PREFIX;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "image.storage.folder=target/loadtest/images",
+        "avatar.cache.folder=target/loadtest/avatars"})
+@ActiveProfiles("embedded")
+class UserLoadTests {
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 1000);
+    private static final int CLIENTS = Integer.getInteger("loadtest.clients", 16);
+    private static final long DURATION_SECONDS = Long.getLong("loadtest.duration-seconds", 30);
+    private static final int USERS_WITH_IMAGES = Math.min(USERS, 100);
+    private static final String PASSWORD = "load-test-password";
+    private static final String[] OPERATIONS = {"login", "find", "list", "image", "register"};
+    private static final int[] WEIGHTS = {10, 40, 20, 20, 10};
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final AtomicInteger registrations = new AtomicInteger();
+
+    @Test
+    void runsMixedWorkload() throws Exception {
+        seedUsers();
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            HttpResponse<Void> response = send(login("load" + i));
+            tokens.add(response.headers().firstValue(JWT_TOKEN_HEADER).orElseThrow());
+        }
+
+        Map<String, Recorder> recorders = new LinkedHashMap<>();
+        Map<String, LongAdder> errors = new LinkedHashMap<>();
+        for (String operation : OPERATIONS) {
+            recorders.put(operation, new Recorder(3));
+            errors.put(operation, new LongAdder());
+        }
+        long deadline = System.nanoTime() + DURATION_SECONDS * 1_000_000_000L;
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            String token = tokens.get(i);
+            futures.add(clients.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    String operation = nextOperation();
+                    HttpRequest request = request(operation, token);
+                    long start = System.nanoTime();
+                    HttpResponse<Void> response = send(request);
+                    recorders.get(operation).recordValue((System.nanoTime() - start) / 1_000);
+                    if (response.statusCode() >= 400) {
+                        errors.get(operation).increment();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        clients.shutdown();
+
+        String report = report(recorders, errors);
+        Files.createDirectories(Paths.get("target"));
+        Files.writeString(Paths.get("target", "load-test-report.txt"), report);
+        assertThat(errors.values().stream().mapToLong(LongAdder::sum).sum()).isZero();
+    }
+
+    private void seedUsers() throws Exception {
+        String encodedPassword = passwordEncoder.encode(PASSWORD);
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setUserId(String.valueOf(1_000_000_000L + i));
+            user.setFirstName("Load");
+            user.setLastName("User" + i);
+            user.setUsername("load" + i);
+            user.setEmail("load" + i + "@example.com");
+            user.setPassword(encodedPassword);
+            user.setJoinDate(new Date());
+            user.setActive(true);
+            user.setNotLocked(true);
+            user.setRoles(Role.ROLE_USER);
+            batch.add(user);
+            if (batch.size() == 500) {
+                userRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        userRepository.saveAll(batch);
+        byte[] image = new byte[4096];
+        image[0] = (byte) 0xFF;
+        image[1] = (byte) 0xD8;
+        image[2] = (byte) 0xFF;
+        for (int i = 0; i < USERS_WITH_IMAGES; i++) {
+            Path upload = Files.createTempFile("load", ".jpg");
+            Files.write(upload, image);
+            imageStorage.store(upload, "load" + i, "load" + i + ".jpg");
+        }
+    }
+
+    private String nextOperation() {
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            roll -= WEIGHTS[i];
+            if (roll < 0) {
+                return OPERATIONS[i];
+            }
+        }
+        return OPERATIONS[OPERATIONS.length - 1];
+    }
+
+    private HttpRequest request(String operation, String token) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case "login":
+                return login("load" + random.nextInt(USERS));
+            case "find":
+                return authenticated("/user/find/load" + random.nextInt(USERS), token);
+            case "list":
+                return authenticated("/user/list/page?size=50&cursor=" + random.nextInt(USERS), token);
+            case "image":
+                int index = random.nextInt(USERS_WITH_IMAGES);
+                return HttpRequest.newBuilder(uri("/user/image/load" + index + "/load" + index + ".jpg")).GET().build();
+            default:
+                int registration = registrations.incrementAndGet();
+                return json("/user/register", "{\"firstName\":\"New\",\"lastName\":\"User\",\"username\":\"new" + registration
+                        + "\",\"email\":\"new" + registration + "@example.com\"}");
+        }
+    }
+
+    private HttpRequest login(String username) {
+        return json("/user/login", "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}");
+    }
+
+    private HttpRequest authenticated(String path, String token) {
+        return HttpRequest.newBuilder(uri(path)).header("Authorization", TOKEN_PREFIX + token).GET().build();
+    }
+
+    private HttpRequest json(String path, String body) {
+        return HttpRequest.newBuilder(uri(path)).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private HttpResponse<Void> send(HttpRequest request) throws Exception {
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    private String report(Map<String, Recorder> recorders, Map<String, LongAdder> errors) {
+        StringBuilder report = new StringBuilder(String.format("users=%d clients=%d durationSeconds=%d%n", USERS, CLIENTS, DURATION_SECONDS));
+        report.append(String.format("%-10s %10s %8s %12s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "throughput/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            Histogram histogram = entry.getValue().getIntervalHistogram();
+            report.append(String.format("%-10s %10d %8d %12.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    entry.getKey(), histogram.getTotalCount(), errors.get(entry.getKey()).sum(),
+                    histogram.getTotalCount() / (double) DURATION_SECONDS,
+                    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.user.service;
+
+import com.example.user.service.impl.RobohashAvatarFetcher;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvatarCacheTests {
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private HttpServer stubServer;
+    private AvatarFetcher avatarFetcher;
+
+    @TempDir
+    Path avatarFolder;
+
+    @BeforeEach
+    void startStubServer() throws Exception {
+        stubServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stubServer.setExecutor(Executors.newFixedThreadPool(4));
+        stubServer.createContext("/", exchange -> {
+            requestCount.incrementAndGet();
+            byte[] body = ("avatar:" + exchange.getRequestURI().getPath().substring(1)).getBytes(StandardCharsets.UTF_8);
+            sleep(200);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        stubServer.start();
+        String baseUrl = "http://localhost:" + stubServer.getAddress().getPort() + "/";
+        avatarFetcher = new RobohashAvatarFetcher(baseUrl, Duration.ofSeconds(2), Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    void stopStubServer() {
+        stubServer.stop(0);
+    }
+
+    @Test
+    void coalescesConcurrentMissesIntoOneFetch() throws Exception {
+        AvatarCache avatarCache = newAvatarCache();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<byte[]>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return avatarCache.get("john");
+            }));
+        }
+        start.countDown();
+        for (Future<byte[]> result : results) {
+            assertThat(new String(result.get(), StandardCharsets.UTF_8)).isEqualTo("avatar:john");
+        }
+        executor.shutdown();
+
+        assertThat(requestCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    void servesAvatarFromDiskAfterRestart() throws Exception {
+        newAvatarCache().get("john");
+
+        byte[] avatar = newAvatarCache().get("john");
+
+        assertThat(new String(avatar, StandardCharsets.UTF_8)).isEqualTo("avatar:john");
+        assertThat(requestCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    void deletesAvatarFilesOlderThanTheTimeToLive() throws Exception {
+        AvatarCache avatarCache = newAvatarCache();
+        avatarCache.get("john");
+        avatarCache.get("jane");
+        Path expired;
+        try (Stream<Path> files = Files.list(avatarFolder)) {
+            expired = files.findFirst().orElseThrow();
+        }
+        Files.setLastModifiedTime(expired, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+
+        avatarCache.deleteExpiredAvatars();
+
+        try (Stream<Path> files = Files.list(avatarFolder)) {
+            assertThat(files).hasSize(1).doesNotContain(expired);
+        }
+    }
+
+    @Test
+    void storesNoMoreAvatarsThanTheDiskLimitAllows() throws Exception {
+        AvatarCache avatarCache = newAvatarCache(DataSize.ofBytes(25));
+        avatarCache.get("john");
+        avatarCache.get("jane");
+
+        byte[] avatar = avatarCache.get("jim");
+
+        assertThat(new String(avatar, StandardCharsets.UTF_8)).isEqualTo("avatar:jim");
+        try (Stream<Path> files = Files.list(avatarFolder)) {
+            assertThat(files).hasSize(2);
+        }
+    }
+
+    private AvatarCache newAvatarCache() {
+        return newAvatarCache(DataSize.ofMegabytes(1));
+    }
+
+    private AvatarCache newAvatarCache(DataSize maximumDiskSize) {
+        return new AvatarCache(avatarFetcher, avatarFolder.toString(), DataSize.ofMegabytes(1), Duration.ofHours(1),
+                maximumDiskSize, new SimpleMeterRegistry());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.user.service;
+
+import com.example.user.config.EmailProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static com.example.user.constant.MetricConstant.EMAIL_DELIVERY_TIMER;
+import static com.example.user.constant.MetricConstant.OUTCOME_TAG;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailServiceTests {
+
+    private StubSmtpServer smtpServer;
+    private EmailService emailService;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (emailService != null) {
+            emailService.shutdown();
+        }
+        if (smtpServer != null) {
+            smtpServer.close();
+        }
+    }
+
+    @Test
+    void deliversQueuedEmailsOverPooledConnections() throws Exception {
+        smtpServer = new StubSmtpServer();
+        EmailProperties emailProperties = localProperties(smtpServer.getPort());
+        emailService = new EmailService(emailProperties, new EmailDeadLetterStore(emailProperties), new SimpleMeterRegistry());
+        emailService.start();
+
+        for (int i = 0; i < 10; i++) {
+            emailService.sendNewPasswordEmail("John", "secret" + i, "john" + i + "@example.com");
+        }
+
+        awaitUntil(() -> smtpServer.getMessages().size() == 10);
+        assertThat(smtpServer.getMessages()).anyMatch(message -> message.contains("secret7"));
+        assertThat(smtpServer.getConnectionCount()).isLessThanOrEqualTo(emailProperties.getConnectionPoolSize());
+    }
+
+    @Test
+    void deadLettersAnUnbuildableEmailAndDeliversTheRestOverTheSameConnection() throws Exception {
+        smtpServer = new StubSmtpServer();
+        EmailProperties emailProperties = localProperties(smtpServer.getPort());
+        emailProperties.setConnectionPoolSize(1);
+        EmailDeadLetterStore deadLetterStore = new EmailDeadLetterStore(emailProperties);
+        emailService = new EmailService(emailProperties, deadLetterStore, new SimpleMeterRegistry());
+        emailService.start();
+
+        emailService.sendNewPasswordEmail("John", "secret1", "john1@example.com");
+        emailService.sendNewPasswordEmail("Nobody", "secret2", null);
+        emailService.sendNewPasswordEmail("John", "secret3", "john3@example.com");
+
+        awaitUntil(() -> smtpServer.getMessages().size() == 2 && deadLetterStore.size() == 1);
+        assertThat(deadLetterStore.getMessages().get(0).getEmail()).isNull();
+        assertThat(smtpServer.getConnectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void movesUndeliverableEmailsToDeadLetterStoreAfterRetries() throws Exception {
+        int closedPort;
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            closedPort = serverSocket.getLocalPort();
+        }
+        EmailProperties emailProperties = localProperties(closedPort);
+        EmailDeadLetterStore deadLetterStore = new EmailDeadLetterStore(emailProperties);
+        emailService = new EmailService(emailProperties, deadLetterStore, new SimpleMeterRegistry());
+        emailService.start();
+
+        emailService.sendNewPasswordEmail("John", "secret", "john@example.com");
+
+        awaitUntil(() -> deadLetterStore.size() == 1);
+        assertThat(deadLetterStore.getMessages().get(0).getAttempts()).isEqualTo(emailProperties.getMaxAttempts());
+        assertThat(deadLetterStore.getMessages().get(0).getPassword()).isNull();
+    }
+
+    @Test
+    void movesPendingRetriesToDeadLetterStoreAtShutdown() throws Exception {
+        int closedPort;
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            closedPort = serverSocket.getLocalPort();
+        }
+        EmailProperties emailProperties = localProperties(closedPort);
+        emailProperties.setInitialBackoff(Duration.ofMinutes(1));
+        EmailDeadLetterStore deadLetterStore = new EmailDeadLetterStore(emailProperties);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        emailService = new EmailService(emailProperties, deadLetterStore, meterRegistry);
+        emailService.start();
+
+        emailService.sendNewPasswordEmail("John", "secret", "john@example.com");
+        awaitUntil(() -> meterRegistry.get(EMAIL_DELIVERY_TIMER).tag(OUTCOME_TAG, "failure").timer().count() == 1);
+        emailService.shutdown();
+
+        assertThat(deadLetterStore.getMessages()).singleElement().satisfies(message -> {
+            assertThat(message.getAttempts()).isEqualTo(1);
+            assertThat(message.getPassword()).isNull();
+        });
+    }
+
+    @Test
+    void postponesTheRestOfABatchWhenTheServerIsUnreachable() throws Exception {
+        AtomicInteger connections = new AtomicInteger();
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            Thread dropper = new Thread(() -> {
+                while (!serverSocket.isClosed()) {
+                    try (Socket socket = serverSocket.accept()) {
+                        // the first connection is held so the next emails queue up into one batch
+                        if (connections.incrementAndGet() == 1) {
+                            Thread.sleep(300);
+                        }
+                    } catch (IOException | InterruptedException ex) {
+                        return;
+                    }
+                }
+            }, "dropping-smtp");
+            dropper.setDaemon(true);
+            dropper.start();
+            EmailProperties emailProperties = localProperties(serverSocket.getLocalPort());
+            emailProperties.setConnectionPoolSize(1);
+            emailProperties.setInitialBackoff(Duration.ofSeconds(30));
+            emailService = new EmailService(emailProperties, new EmailDeadLetterStore(emailProperties), new SimpleMeterRegistry());
+            emailService.start();
+
+            emailService.sendNewPasswordEmail("John", "secret", "john@example.com");
+            awaitUntil(() -> connections.get() == 1);
+            for (int i = 0; i < 5; i++) {
+                emailService.sendNewPasswordEmail("Jane", "secret" + i, "jane" + i + "@example.com");
+            }
+
+            awaitUntil(() -> connections.get() == 2);
+            Thread.sleep(500);
+            assertThat(connections.get()).isEqualTo(2);
+        }
+    }
+
+    private EmailProperties localProperties(int port) {
+        EmailProperties emailProperties = new EmailProperties();
+        emailProperties.setEnabled(true);
+        emailProperties.setProtocol("smtp");
+        emailProperties.setHost("localhost");
+        emailProperties.setPort(port);
+        emailProperties.setAuth(false);
+        emailProperties.setStartTls(false);
+        emailProperties.setMaxAttempts(3);
+        emailProperties.setInitialBackoff(Duration.ofMillis(10));
+        emailProperties.setTimeout(Duration.ofSeconds(2));
+        return emailProperties;
+    }
+
+    private void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private static class StubSmtpServer implements AutoCloseable {
+
+        private final ServerSocket serverSocket = new ServerSocket(0);
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final AtomicInteger connectionCount = new AtomicInteger();
+
+        StubSmtpServer() throws IOException {
+            Thread acceptor = new Thread(this::accept, "stub-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        List<String> getMessages() {
+            return messages;
+        }
+
+        int getConnectionCount() {
+            return connectionCount.get();
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connectionCount.incrementAndGet();
+                    Thread session = new Thread(() -> handle(socket), "stub-smtp-session");
+                    session.setDaemon(true);
+                    session.start();
+                } catch (IOException ex) {
+                    return;
+                }
+            }
+        }
+
+        private void handle(Socket socket) {
+            try (socket;
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+                OutputStream out = socket.getOutputStream();
+                reply(out, "220 localhost ESMTP stub");
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String command = line.toUpperCase();
+                    if (command.startsWith("DATA")) {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        StringBuilder data = new StringBuilder();
+                        while ((line = reader.readLine()) != null && !line.equals(".")) {
+                            data.append(line).append('\n');
+                        }
+                        messages.add(data.toString());
+                        reply(out, "250 OK");
+                    } else if (command.startsWith("QUIT")) {
+                        reply(out, "221 Bye");
+                        return;
+                    } else {
+                        reply(out, "250 OK");
+                    }
+                }
+            } catch (IOException ignored) {
+                // the client went away
+            }
+        }
+
+        private void reply(OutputStream out, String line) throws IOException {
+            out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
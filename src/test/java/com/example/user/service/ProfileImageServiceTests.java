@@ -0,0 +1,79 @@
+package com.example.user.service;
+
+import com.example.user.service.impl.FlatImageStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfileImageServiceTests {
+
+    @TempDir
+    Path imageFolder;
+
+    private ImageStorage imageStorage;
+    private ProfileImageService profileImageService;
+
+    @BeforeEach
+    void createService() {
+        imageStorage = new FlatImageStorage(imageFolder.toString());
+        profileImageService = new ProfileImageService(imageStorage, 16, 1, 10, 1_000_000);
+    }
+
+    @AfterEach
+    void shutdown() {
+        profileImageService.shutdown();
+    }
+
+    @Test
+    void makesNoThumbnailForAnImageDeclaringTooManyPixels() throws Exception {
+        publish("huge", withDimensions(png(), 50_000, 50_000));
+        publish("small", png());
+
+        // the worker handles one task at a time, so the small thumbnail shows up after the huge image was handled
+        awaitThumbnail("small");
+        assertThat(imageStorage.resolve("huge", "huge.png")).exists();
+        assertThat(imageStorage.resolve("huge", "huge-thumbnail.jpg")).doesNotExist();
+    }
+
+    private void publish(String username, byte[] image) throws Exception {
+        Path stagedImage = profileImageService.stage(new MockMultipartFile("profileImage", username + ".png", "image/png", image));
+        profileImageService.publish(stagedImage, username);
+    }
+
+    private void awaitThumbnail(String username) throws InterruptedException {
+        Path thumbnail = imageStorage.resolve(username, username + "-thumbnail.jpg");
+        for (int attempt = 0; attempt < 100 && !Files.exists(thumbnail); attempt++) {
+            Thread.sleep(50);
+        }
+        assertThat(thumbnail).exists();
+    }
+
+    private static byte[] png() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "png", outputStream);
+        return outputStream.toByteArray();
+    }
+
+    // rewrites the IHDR chunk that follows the signature, leaving the few pixel bytes as they are
+    private static byte[] withDimensions(byte[] png, int width, int height) {
+        ByteBuffer buffer = ByteBuffer.wrap(png);
+        buffer.putInt(16, width);
+        buffer.putInt(20, height);
+        CRC32 crc = new CRC32();
+        crc.update(png, 12, 17);
+        buffer.putInt(29, (int) crc.getValue());
+        return png;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.user.service.impl;
+
+import com.example.user.domain.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GuavaUserCacheTests {
+
+    private final GuavaUserCache userCache = new GuavaUserCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+    private final Map<String, User> database = new HashMap<>();
+
+    @Test
+    void doesNotCacheAbsentUsers() {
+        assertThat(userCache.getByUsername("john", database::get)).isNull();
+
+        database.put("john", user(1L, "john", "john@example.com"));
+
+        assertThat(userCache.getByUsername("john", database::get)).isNotNull();
+    }
+
+    @Test
+    void evictsEveryKeyAUserIsCachedUnder() {
+        User john = user(1L, "john", "john@example.com");
+        database.put("john", john);
+        database.put("JOHN", john);
+        database.put("john@example.com", john);
+        userCache.getByUsername("john", database::get);
+        userCache.getByUsername("JOHN", database::get);
+        userCache.getByEmail("john@example.com", database::get);
+        database.clear();
+
+        // the user was renamed, entries under the previous keys still go
+        userCache.evict(user(1L, "johnny", "johnny@example.com"));
+
+        assertThat(userCache.getByUsername("john", database::get)).isNull();
+        assertThat(userCache.getByUsername("JOHN", database::get)).isNull();
+        assertThat(userCache.getByEmail("john@example.com", database::get)).isNull();
+    }
+
+    @Test
+    void evictsByUsernameAndById() {
+        User john = user(1L, "john", "john@example.com");
+        User jane = user(2L, "jane", "jane@example.com");
+        database.put("john", john);
+        database.put("jane", jane);
+        userCache.getByUsername("john", database::get);
+        userCache.getByUsername("jane", database::get);
+        database.clear();
+
+        userCache.evictByUsername(Collections.singleton("John"));
+        userCache.evictById(2L);
+
+        assertThat(userCache.getByUsername("john", database::get)).isNull();
+        assertThat(userCache.getByUsername("jane", database::get)).isNull();
+    }
+
+    private static User user(Long id, String username, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setEmail(email);
+        return user;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.user.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageStorageTests {
+
+    @TempDir
+    Path rootFolder;
+
+    @Test
+    void shardsUserFoldersAndRejectsEscapes() throws Exception {
+        ShardedImageStorage imageStorage = new ShardedImageStorage(rootFolder.toString());
+
+        imageStorage.store(upload("image"), "john", "john.jpg");
+
+        Path stored = imageStorage.resolve("john", "john.jpg");
+        assertThat(stored).hasContent("image");
+        assertThat(rootFolder.relativize(stored).getNameCount()).isEqualTo(4);
+        assertThat(imageStorage.resolve("john", "../../../../../etc/passwd")).isNull();
+    }
+
+    @Test
+    void neverResolvesStagedUploads() throws Exception {
+        FlatImageStorage imageStorage = new FlatImageStorage(rootFolder.toString());
+
+        assertThat(imageStorage.resolve(".staging", "upload123.jpg")).isNull();
+        assertThat(imageStorage.resolve("john", "../.staging/upload123.jpg")).isNull();
+    }
+
+    @Test
+    void deduplicatesIdenticalUploads() throws Exception {
+        ContentAddressedImageStorage imageStorage = new ContentAddressedImageStorage(rootFolder.toString(), Duration.ofHours(1));
+
+        imageStorage.store(upload("same"), "john", "john.jpg");
+        imageStorage.store(upload("same"), "jane", "jane.jpg");
+
+        assertThat(imageStorage.resolve("jane", "jane.jpg")).hasContent("same");
+        assertThat(Files.isSameFile(imageStorage.resolve("john", "john.jpg"), imageStorage.resolve("jane", "jane.jpg"))).isTrue();
+    }
+
+    @Test
+    void sweepsBlobsNoUserLinksTo() throws Exception {
+        ContentAddressedImageStorage imageStorage = new ContentAddressedImageStorage(rootFolder.toString(), Duration.ZERO);
+        imageStorage.store(upload("old"), "john", "john.jpg");
+        imageStorage.store(upload("kept"), "jane", "jane.jpg");
+
+        imageStorage.store(upload("new"), "john", "john.jpg");
+        imageStorage.sweepBlobs();
+
+        try (Stream<Path> files = Files.walk(rootFolder.resolve(".blobs"))) {
+            assertThat(files.filter(Files::isRegularFile).map(this::content)).containsExactlyInAnyOrder("kept", "new");
+        }
+        assertThat(imageStorage.resolve("john", "john.jpg")).hasContent("new");
+        try (Stream<Path> files = Files.list(imageStorage.resolve("john", "john.jpg").getParent())) {
+            assertThat(files).hasSize(1);
+        }
+    }
+
+    private String content(Path file) {
+        try {
+            return Files.readString(file);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private Path upload(String content) throws Exception {
+        Path upload = Files.createTempFile(rootFolder, "upload", ".jpg");
+        return Files.writeString(upload, content);
+    }
+}
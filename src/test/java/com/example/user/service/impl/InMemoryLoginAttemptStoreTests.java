@@ -0,0 +1,124 @@
+package com.example.user.service.impl;
+
+import com.example.user.service.LoginAttemptStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryLoginAttemptStoreTests {
+
+    private final MutableClock clock = new MutableClock();
+    private final InMemoryLoginAttemptStore store = new InMemoryLoginAttemptStore(Duration.ofMinutes(5), 10, 1000, clock);
+
+    @Test
+    void countsAttemptsWithinTheSlidingWindow() {
+        store.increment("john");
+        clock.advance(Duration.ofMinutes(3));
+        store.increment("john");
+        assertThat(store.count("john")).isEqualTo(2);
+
+        clock.advance(Duration.ofMinutes(3));
+        assertThat(store.count("john")).isEqualTo(1);
+
+        clock.advance(Duration.ofMinutes(3));
+        assertThat(store.count("john")).isZero();
+        store.purge();
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void doesNotLoseConcurrentIncrements() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    store.increment("john");
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(store.count("john")).isEqualTo(8000);
+    }
+
+    @Test
+    void doesNotLoseIncrementsWhilePurging() throws InterruptedException {
+        Thread purger = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                store.purge();
+            }
+        });
+        purger.start();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    store.increment("user" + j % 100);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        purger.interrupt();
+        purger.join();
+
+        for (int j = 0; j < 100; j++) {
+            assertThat(store.count("user" + j)).isEqualTo(80);
+        }
+    }
+
+    @Test
+    void failsClosedInsteadOfEvictingWhenFull() {
+        store.increment("john");
+        for (int i = 0; i < 5000; i++) {
+            store.increment("random" + i);
+        }
+
+        assertThat(store.size()).isEqualTo(1000);
+        assertThat(store.count("john")).isEqualTo(1);
+        assertThat(store.count("unknown")).isEqualTo(LoginAttemptStore.UNTRACKED);
+
+        clock.advance(Duration.ofMinutes(6));
+        store.purge();
+        assertThat(store.count("unknown")).isZero();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private volatile Instant instant = Instant.parse("2021-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.user.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnowflakeIdGeneratorTests {
+
+    @Test
+    void staysMonotonicWhenTheClockStepsBackOrTheSequenceRunsOut() {
+        MutableClock clock = new MutableClock();
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(7, clock);
+        long previous = idGenerator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000) {
+                clock.millis -= 1_000;
+            }
+            long id = idGenerator.nextId();
+            assertThat(id).isGreaterThan(previous);
+            assertThat((id >>> SnowflakeIdGenerator.SEQUENCE_BITS) & SnowflakeIdGenerator.MAX_NODE_ID).isEqualTo(7);
+            previous = id;
+        }
+    }
+
+    @Test
+    void generatesUniqueIdsAcrossThreads() throws InterruptedException {
+        SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(1);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                Set<Long> local = new HashSet<>();
+                for (int j = 0; j < 50_000; j++) {
+                    local.add(idGenerator.nextId());
+                }
+                ids.addAll(local);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(ids).hasSize(8 * 50_000);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private long millis = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
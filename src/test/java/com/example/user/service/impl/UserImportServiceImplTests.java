@@ -0,0 +1,101 @@
+package com.example.user.service.impl;
+
+import com.example.user.domain.UserImportResult;
+import com.example.user.repository.UserRepository;
+import com.example.user.service.UserImportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.StringReader;
+import java.util.Collections;
+
+import static com.example.user.constant.UserConstant.USERNAME_ALREADY_EXISTS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+
+@SpringBootTest(properties = {
+        "image.storage.folder=target/test-images/${random.uuid}",
+        "avatar.cache.folder=target/test-avatars"})
+@ActiveProfiles("embedded")
+class UserImportServiceImplTests {
+
+    private static final String HEADER = "firstName,lastName,username,email,role\n";
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @SpyBean
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void bindRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void unbindRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void rejectsOnlyTheRowsTheDatabaseRefuses() throws Exception {
+        userImportService.importCsv(new StringReader(HEADER + "Ivy,Import,ivy.import,ivy.import@example.com,ROLE_USER\n"));
+        // the lookup misses the existing user, as when another import commits it at the same time
+        doReturn(Collections.emptyList()).when(userRepository).findExistingUsernamesAndEmails(any(), any());
+
+        UserImportResult result = userImportService.importCsv(new StringReader(HEADER
+                + "Jack,Import,jack.import,jack.import@example.com,ROLE_USER\n"
+                + "Ivy,Again,ivy.import,ivy.again@example.com,ROLE_USER\n"
+                + "Kim,Import,kim.import,kim.import@example.com,ROLE_USER\n"));
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement().satisfies(error -> {
+            assertThat(error.getLine()).isEqualTo(3);
+            assertThat(error.getMessage()).isEqualTo(USERNAME_ALREADY_EXISTS);
+        });
+        assertThat(userRepository.findUserByUsername("jack.import")).isNotNull();
+        assertThat(userRepository.findUserByUsername("kim.import")).isNotNull();
+        assertThat(userRepository.findUserByUsername("ivy.import").getLastName()).isEqualTo("Import");
+    }
+
+    @Test
+    void readsQuotedFieldsAcrossLinesAfterAByteOrderMark() throws Exception {
+        UserImportResult result = userImportService.importCsv(new StringReader("﻿" + HEADER
+                + "\"Lea\",\"Multi\nLine\",lea.import,lea.import@example.com,ROLE_USER\n"
+                + "\n"
+                + "Max,\"Say \"\"Hi\"\"\",max.import,max.import@example.com,role_unknown\n"));
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(userRepository.findUserByUsername("lea.import").getLastName()).isEqualTo("Multi\nLine");
+        assertThat(result.getErrors()).singleElement().satisfies(error -> {
+            assertThat(error.getLine()).isEqualTo(5);
+            assertThat(error.getUsername()).isEqualTo("max.import");
+        });
+    }
+
+    @Test
+    void reportsMalformedJsonLinesByPhysicalLineAndImportsTheRest() throws Exception {
+        UserImportResult result = userImportService.importJsonLines(new StringReader(
+                "{\"firstName\":\"Nia\",\"lastName\":\"Json\",\"username\":\"nia.json\",\"email\":\"nia.json@example.com\",\"role\":\"ROLE_USER\"}\n"
+                        + "\n"
+                        + "{\"firstName\":\"Oli\",\"username\":{}}\n"
+                        + "{not json\n"
+                        + "{\"firstName\":\"Pia\",\"lastName\":\"Json\",\"username\":\"pia.json\",\"email\":\"pia.json@example.com\",\"role\":\"ROLE_USER\"}\n"));
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(UserImportResult.RowError::getLine).containsExactly(3L, 4L);
+        assertThat(userRepository.findUserByUsername("nia.json")).isNotNull();
+        assertThat(userRepository.findUserByUsername("pia.json")).isNotNull();
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.user.service.impl;
+
+import com.example.user.domain.User;
+import com.example.user.domain.UserPatch;
+import com.example.user.exception.EmailExistException;
+import com.example.user.exception.EmailNotFoundException;
+import com.example.user.exception.UsernameExistException;
+import com.example.user.repository.UserRepository;
+import com.example.user.service.IdGenerator;
+import com.example.user.service.ImageStorage;
+import com.example.user.service.LoginAttemptService;
+import com.example.user.service.LoginAttemptStore;
+import com.example.user.service.UserService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+
+@SpringBootTest(properties = {
+        "image.storage.folder=target/test-images/${random.uuid}",
+        "avatar.cache.folder=target/test-avatars",
+        "login-attempt.maximum-keys=100",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.example.user.service.impl.UserServiceImplTests$RecordingStatementInspector"})
+@ActiveProfiles("embedded")
+class UserServiceImplTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private LoginAttemptService loginAttemptService;
+
+    @Autowired
+    private LoginAttemptStore loginAttemptStore;
+
+    @SpyBean
+    private IdGenerator idGenerator;
+
+    @SpyBean
+    private PasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void bindRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void unbindRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void publishesTheImageAfterTheUserIsSaved() throws Exception {
+        User user = userService.addNewUser("Anna", "Image", "anna.image", "anna.image@example.com", "ROLE_USER",
+                true, true, image("anna"));
+
+        assertThat(user.getProfileImageUrl()).endsWith("/user/image/anna.image/anna.image.jpg");
+        assertThat(userRepository.findUserByUsername("anna.image").getProfileImageUrl()).isEqualTo(user.getProfileImageUrl());
+        assertThat(imageStorage.resolve("anna.image", "anna.image.jpg")).hasBinaryContent(imageBytes("anna"));
+    }
+
+    @Test
+    void publishesAnImageUnderItsDetectedType() throws Exception {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 'p', 'n', 'g'};
+        userService.addNewUser("Pam", "Image", "pam.image", "pam.image@example.com", "ROLE_USER", true, true, image("pam"));
+
+        User user = userService.updateProfileImage("pam.image",
+                new MockMultipartFile("profileImage", "pam.jpg", "image/jpeg", png));
+
+        assertThat(user.getProfileImageUrl()).endsWith("/user/image/pam.image/pam.image.png");
+        assertThat(imageStorage.resolve("pam.image", "pam.image.png")).hasBinaryContent(png);
+        assertThat(imageStorage.resolve("pam.image", "pam.image.jpg")).doesNotExist();
+    }
+
+    @Test
+    void rejectedUpdateLeavesExistingImagesAlone() throws Exception {
+        userService.addNewUser("Alice", "Image", "alice.image", "alice.image@example.com", "ROLE_USER", true, true, image("alice"));
+        userService.addNewUser("Bob", "Image", "bob.image", "bob.image@example.com", "ROLE_USER", true, true, null);
+
+        assertThatThrownBy(() -> userService.updateUser("bob.image", "Robert", "Image", "alice.image", "bob.image@example.com",
+                "ROLE_USER", true, true, image("bob"))).isInstanceOf(UsernameExistException.class);
+
+        assertThat(imageStorage.resolve("alice.image", "alice.image.jpg")).hasBinaryContent(imageBytes("alice"));
+        User bob = userRepository.findUserByUsername("bob.image");
+        assertThat(bob.getFirstName()).isEqualTo("Bob");
+        assertThat(bob.getProfileImageUrl()).endsWith("/user/image/profile/bob.image");
+    }
+
+    @Test
+    void rejectedInsertPublishesNoImage() throws Exception {
+        userService.addNewUser("Carol", "Image", "carol.image", "carol.image@example.com", "ROLE_USER", true, true, null);
+
+        assertThatThrownBy(() -> userService.addNewUser("Dave", "Image", "dave.image", "carol.image@example.com", "ROLE_USER",
+                true, true, image("dave"))).isInstanceOf(EmailExistException.class);
+
+        assertThat(imageStorage.resolve("dave.image", "dave.image.jpg")).doesNotExist();
+        assertThat(userRepository.findUserByUsername("dave.image")).isNull();
+    }
+
+    @Test
+    void patchWritesOnlyTheChangedColumns() throws Exception {
+        userService.addNewUser("Erin", "Patch", "erin.patch", "erin.patch@example.com", "ROLE_USER", true, true, null);
+        UserPatch patch = new UserPatch();
+        patch.setVersion(userRepository.findUserByUsername("erin.patch").getVersion());
+        patch.setFirstName("Erica");
+
+        RecordingStatementInspector.STATEMENTS.clear();
+        User patched = userService.patchUser("erin.patch", patch);
+
+        assertThat(RecordingStatementInspector.STATEMENTS).filteredOn(sql -> sql.startsWith("update"))
+                .containsExactly("update user set first_name=?, version=? where id=? and version=?");
+        assertThat(patched.getVersion()).isEqualTo(patch.getVersion() + 1);
+        assertThat(userRepository.findUserByUsername("erin.patch").getLastName()).isEqualTo("Patch");
+    }
+
+    @Test
+    void retriesWithANewUserIdWhenTheGeneratedOneIsTaken() throws Exception {
+        User first = userService.addNewUser("Fay", "Id", "fay.id", "fay.id@example.com", "ROLE_USER", true, true, null);
+        // another node sharing the same node id generated this one first
+        doReturn(Long.parseLong(first.getUserId())).doCallRealMethod().when(idGenerator).nextId();
+
+        User second = userService.register("Gus", "Id", "gus.id", "gus.id@example.com");
+
+        assertThat(second.getUserId()).isNotEqualTo(first.getUserId());
+        assertThat(userRepository.findUserByUsername("gus.id").getUserId()).isEqualTo(second.getUserId());
+    }
+
+    @Test
+    void hashesPasswordsOutsideTransactions() throws Exception {
+        List<Boolean> transactionActive = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            transactionActive.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return invocation.callRealMethod();
+        }).when(passwordEncoder).encode(any());
+
+        userService.register("Hal", "Hash", "hal.hash", "hal.hash@example.com");
+        userService.addNewUser("Ida", "Hash", "ida.hash", "ida.hash@example.com", "ROLE_USER", true, true, null);
+        String registeredPassword = userRepository.findUserByUsername("hal.hash").getPassword();
+        userService.resetPassword("hal.hash@example.com");
+
+        assertThat(transactionActive).containsExactly(false, false, false);
+        User resetUser = userRepository.findUserByUsername("hal.hash");
+        assertThat(resetUser.getPassword()).isNotEqualTo(registeredPassword);
+        assertThat(passwordEncoder.matches(resetUser.getRawPassword(), resetUser.getPassword())).isTrue();
+    }
+
+    @Test
+    void doesNotHashAPasswordForAnUnknownEmail() {
+        List<Boolean> hashed = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            hashed.add(true);
+            return invocation.callRealMethod();
+        }).when(passwordEncoder).encode(any());
+
+        assertThatThrownBy(() -> userService.resetPassword("nobody@example.com"))
+                .isInstanceOf(EmailNotFoundException.class);
+        assertThat(hashed).isEmpty();
+    }
+
+    @Test
+    void locksAnAccountWithoutChangingTheCachedUser() throws Exception {
+        userService.register("Jan", "Lock", "jan.lock", "jan.lock@example.com");
+        User cachedUser = userService.findUserByUsername("jan.lock");
+        for (int attempt = 0; attempt < 5; attempt++) {
+            loginAttemptService.addUserToCache("jan.lock");
+        }
+
+        UserDetails principal = ((UserDetailsService) userService).loadUserByUsername("jan.lock");
+
+        assertThat(principal.isAccountNonLocked()).isFalse();
+        assertThat(cachedUser.isNotLocked()).isTrue();
+        assertThat(userService.findUserByUsername("jan.lock")).isNotSameAs(cachedUser)
+                .satisfies(user -> assertThat(user.isNotLocked()).isFalse());
+    }
+
+    @Test
+    void throttlesInsteadOfLockingAnUntrackedAccountWhenTheAttemptStoreIsFull() throws Exception {
+        userService.register("Jan", "Full", "jan.full", "jan.full@example.com");
+        for (int key = 0; key < 100; key++) {
+            loginAttemptStore.increment("filler:" + key);
+        }
+        try {
+            UserDetails principal = ((UserDetailsService) userService).loadUserByUsername("jan.full");
+
+            assertThat(principal.isAccountNonLocked()).isTrue();
+            assertThat(userRepository.findUserByUsername("jan.full").isNotLocked()).isTrue();
+            assertThat(loginAttemptService.isUsernameThrottled("jan.full")).isTrue();
+        } finally {
+            for (int key = 0; key < 100; key++) {
+                loginAttemptStore.reset("filler:" + key);
+            }
+        }
+    }
+
+    private static MockMultipartFile image(String content) {
+        return new MockMultipartFile("profileImage", content + ".jpg", "image/jpeg", imageBytes(content));
+    }
+
+    private static byte[] imageBytes(String content) {
+        byte[] body = content.getBytes();
+        byte[] image = new byte[body.length + 3];
+        image[0] = (byte) 0xFF;
+        image[1] = (byte) 0xD8;
+        image[2] = (byte) 0xFF;
+        System.arraycopy(body, 0, image, 3, body.length);
+        return image;
+    }
+
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.user.utility;
+
+import com.example.user.exception.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTests {
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @AfterEach
+    void tearDown() {
+        passwordEncoder.shutdown();
+    }
+
+    @Test
+    void upgradesHashesWithADifferentCost() {
+        passwordEncoder = new BoundedPasswordEncoder(4, 1, 10, Duration.ofSeconds(1), new SimpleMeterRegistry());
+
+        String encoded = passwordEncoder.encode("secret");
+
+        assertThat(passwordEncoder.matches("secret", encoded)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(encoded)).isFalse();
+        assertThat(passwordEncoder.upgradeEncoding(new BCryptPasswordEncoder(5).encode("secret"))).isTrue();
+    }
+
+    @Test
+    void rejectsWorkWhenSaturated() throws InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        passwordEncoder = new BoundedPasswordEncoder(14, 1, 1, Duration.ofSeconds(2), meterRegistry);
+        List<CompletableFuture<String>> inFlight = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            inFlight.add(CompletableFuture.supplyAsync(() -> passwordEncoder.encode("secret")));
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (meterRegistry.get("password.hashing.queue").gauge().value() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> passwordEncoder.encode("secret")).isInstanceOf(PasswordHashingUnavailableException.class)
+                .extracting("retryAfterSeconds").isEqualTo(2L);
+        assertThat(passwordEncoder.tryEncode("secret")).isNull();
+        inFlight.forEach(CompletableFuture::join);
+    }
+}
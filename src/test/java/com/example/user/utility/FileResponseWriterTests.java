@@ -0,0 +1,75 @@
+package com.example.user.utility;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileResponseWriterTests {
+
+    private final FileResponseWriter fileResponseWriter = new FileResponseWriter(Duration.ofHours(1), new SimpleMeterRegistry());
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void writesWholeFileWithValidators() throws Exception {
+        Path file = Files.write(folder.resolve("john.jpg"), "0123456789".getBytes(StandardCharsets.US_ASCII));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileResponseWriter.write(file, MediaType.IMAGE_JPEG, new MockHttpServletRequest("GET", "/"), response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNotNull();
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("max-age=3600, public");
+    }
+
+    @Test
+    void writesRequestedRange() throws Exception {
+        Path file = Files.write(folder.resolve("john.jpg"), "0123456789".getBytes(StandardCharsets.US_ASCII));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileResponseWriter.write(file, MediaType.IMAGE_JPEG, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+    }
+
+    @Test
+    void answersNotModifiedForMatchingETag() throws Exception {
+        Path file = Files.write(folder.resolve("john.jpg"), "0123456789".getBytes(StandardCharsets.US_ASCII));
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        fileResponseWriter.write(file, MediaType.IMAGE_JPEG, new MockHttpServletRequest("GET", "/"), first);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, first.getHeader(HttpHeaders.ETAG));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileResponseWriter.write(file, MediaType.IMAGE_JPEG, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void answersNotFoundForMissingFile() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fileResponseWriter.write(folder.resolve("missing.jpg"), MediaType.IMAGE_JPEG, new MockHttpServletRequest("GET", "/"), response);
+
+        assertThat(response.getStatus()).isEqualTo(404);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.user.utility;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RehashingAuthenticationProviderTests {
+
+    @Test
+    void logsInWithoutTheRehashWhenHashingIsSaturated() {
+        UserDetails user = new User("john", "$2a$05$outdated", Collections.emptyList());
+        BoundedPasswordEncoder passwordEncoder = mock(BoundedPasswordEncoder.class);
+        when(passwordEncoder.matches("secret", user.getPassword())).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding(user.getPassword())).thenReturn(true);
+        when(passwordEncoder.tryEncode("secret")).thenReturn(null);
+        UserDetailsPasswordService userDetailsPasswordService = mock(UserDetailsPasswordService.class);
+        RehashingAuthenticationProvider provider = new RehashingAuthenticationProvider(username -> user, passwordEncoder,
+                userDetailsPasswordService);
+
+        Authentication authentication = provider.authenticate(new UsernamePasswordAuthenticationToken("john", "secret"));
+
+        assertThat(authentication.isAuthenticated()).isTrue();
+        verify(userDetailsPasswordService, never()).updatePassword(any(), any());
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.user.utility;
+
+import com.example.user.domain.VerifiedToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTests {
+
+    private final VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(100, Duration.ofMinutes(10), new SimpleMeterRegistry());
+
+    @Test
+    void returnsCachedTokenUntilItExpires() {
+        VerifiedToken verifiedToken = new VerifiedToken("john", System.currentTimeMillis() + 60_000, List.of());
+        verifiedTokenCache.put("token", verifiedToken);
+
+        assertThat(verifiedTokenCache.get("token")).isSameAs(verifiedToken);
+        assertThat(verifiedTokenCache.get("other")).isNull();
+        assertThat(verifiedTokenCache.getHitCount()).isEqualTo(1);
+        assertThat(verifiedTokenCache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void neverServesExpiredToken() throws InterruptedException {
+        VerifiedToken verifiedToken = new VerifiedToken("john", System.currentTimeMillis() + 50, List.of());
+        verifiedTokenCache.put("token", verifiedToken);
+        Thread.sleep(100);
+
+        assertThat(verifiedTokenCache.get("token")).isNull();
+        assertThat(verifiedTokenCache.size()).isZero();
+    }
+}